@@ -20,20 +20,48 @@
 
 package com.github.fracpete.pjwrapper;
 
+import com.github.fracpete.pjwrapper.backend.AbstractBackend;
+import com.github.fracpete.pjwrapper.backend.JavabridgeBackend;
+import com.github.fracpete.pjwrapper.backend.PWWBackend;
+import com.github.fracpete.pjwrapper.core.BytecodeCompiler;
 import com.github.fracpete.pjwrapper.core.ClassDescriptor;
+import com.github.fracpete.pjwrapper.core.AbstractParser;
+import com.github.fracpete.pjwrapper.core.ClassPathIndex;
+import com.github.fracpete.pjwrapper.core.ClassPathWatcher;
+import com.github.fracpete.pjwrapper.core.DescriptorIndex;
 import com.github.fracpete.pjwrapper.core.Generator;
 import com.github.fracpete.pjwrapper.core.Parser;
+import com.github.fracpete.pjwrapper.core.ReflectionParser;
+import com.github.fracpete.pjwrapper.core.Sharding;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
 /**
@@ -52,9 +80,18 @@ public class Main {
   /** the classnames to process. */
   protected List<String> m_Classes;
 
+  /** the file to stream further classnames from ("-" for stdin). */
+  protected String m_ClassList;
+
+  /** the number of threads for parsing classes. */
+  protected int m_NumThreads;
+
   /** the classpath to use. */
   protected String m_ClassPath;
 
+  /** the file to persist the classpath index in. */
+  protected File m_ClassPathIndex;
+
   /** the Python output file. */
   protected File m_OutputFile;
 
@@ -73,19 +110,108 @@ public class Main {
   /** whether to output python-weka-wrapper code. */
   protected boolean m_PWW;
 
+  /** the name of the backend to use for generating the code. */
+  protected String m_Backend;
+
+  /** the name of the frontend to use for parsing the classes. */
+  protected String m_Frontend;
+
+  /** whether to generate pickling support for serializable classes. */
+  protected boolean m_Pickle;
+
+  /** the prebuilt descriptor index to use. */
+  protected File m_Index;
+
+  /** the descriptor index to build. */
+  protected File m_BuildIndex;
+
+  /** whether to watch the classpath and regenerate the code on changes. */
+  protected boolean m_Watch;
+
+  /** the time in msec to wait for further changes before regenerating. */
+  protected int m_WatchDebounce;
+
+  /** the shard to generate ("index/number"), null for all classes. */
+  protected String m_Shard;
+
+  /** the parsed shard. */
+  protected Sharding m_Sharding;
+
+  /** the shard outputs to merge. */
+  protected List<File> m_Merge;
+
+  /** whether to compile the generated code to bytecode. */
+  protected boolean m_Compile;
+
+  /** the Python executable to use for compiling. */
+  protected String m_Python;
+
+  /** the timeout in seconds for parsing a class with javap (0 = no timeout). */
+  protected int m_Timeout;
+
+  /** the maximum number of concurrent javap processes (0 = unlimited). */
+  protected int m_MaxProcesses;
+
+  /** the maximum heap for javap (eg 256m), null for the JVM default. */
+  protected String m_JavapMaxHeap;
+
+  /** the time in msec from which on parsing a class counts as slow. */
+  protected int m_Slow;
+
+  /**
+   * Parses a class in the pipeline, remembering the position of the class
+   * in the requested order.
+   */
+  protected static class Job
+    extends FutureTask<ClassDescriptor> {
+
+    /** the position of the class in the requested order. */
+    public int position;
+
+    /**
+     * Initializes the job.
+     *
+     * @param callable	the parsing
+     * @param position	the position of the class
+     */
+    public Job(Callable<ClassDescriptor> callable, int position) {
+      super(callable);
+      this.position = position;
+    }
+  }
+
   /**
    * Initalizes the object.
    */
   public Main() {
-    m_JavaHome    = (System.getenv("JAVA_HOME") != null ? new File(System.getenv("JAVA_HOME")) : null);
-    m_Classes     = new ArrayList<>();
-    m_ClassPath   = null;
-    m_OutputFile  = null;
-    m_Append      = false;
-    m_Skip        = null;
-    m_SkipPattern = null;
-    m_Debug       = false;
-    m_PWW         = false;
+    m_JavaHome       = (System.getenv("JAVA_HOME") != null ? new File(System.getenv("JAVA_HOME")) : null);
+    m_Classes        = new ArrayList<>();
+    m_ClassList      = null;
+    m_NumThreads     = 1;
+    m_ClassPath      = null;
+    m_ClassPathIndex = null;
+    m_OutputFile     = null;
+    m_Append         = false;
+    m_Skip           = null;
+    m_SkipPattern    = null;
+    m_Debug          = false;
+    m_PWW            = false;
+    m_Backend        = JavabridgeBackend.NAME;
+    m_Frontend       = Parser.NAME;
+    m_Pickle         = false;
+    m_Index          = null;
+    m_BuildIndex     = null;
+    m_Watch          = false;
+    m_WatchDebounce  = 500;
+    m_Shard          = null;
+    m_Sharding       = null;
+    m_Merge          = new ArrayList<>();
+    m_Compile        = false;
+    m_Python         = "python3";
+    m_Timeout        = 0;
+    m_MaxProcesses   = 0;
+    m_JavapMaxHeap   = null;
+    m_Slow           = 5000;
   }
 
   /**
@@ -124,6 +250,24 @@ public class Main {
     return m_ClassPath;
   }
 
+  /**
+   * Sets the file to persist the classpath index in.
+   *
+   * @param value	the file, null for not persisting it
+   */
+  public void setClassPathIndex(File value) {
+    m_ClassPathIndex = value;
+  }
+
+  /**
+   * Returns the file to persist the classpath index in.
+   *
+   * @return		the file, null if not set
+   */
+  public File getClassPathIndex() {
+    return m_ClassPathIndex;
+  }
+
   /**
    * Sets the class names to process.
    *
@@ -142,6 +286,42 @@ public class Main {
     return m_Classes;
   }
 
+  /**
+   * Sets the file to stream further class names from.
+   *
+   * @param value	the file, "-" for stdin, null for none
+   */
+  public void setClassList(String value) {
+    m_ClassList = value;
+  }
+
+  /**
+   * Returns the file to stream further class names from.
+   *
+   * @return		the file, "-" for stdin, null if not set
+   */
+  public String getClassList() {
+    return m_ClassList;
+  }
+
+  /**
+   * Sets the number of threads for parsing classes.
+   *
+   * @param value	the number of threads
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads for parsing classes.
+   *
+   * @return		the number of threads
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
   /**
    * Sets the Python output file.
    *
@@ -232,26 +412,363 @@ public class Main {
     return m_PWW;
   }
 
+  /**
+   * Sets the name of the backend to use for generating the code.
+   *
+   * @param value	the name of the backend
+   */
+  public void setBackend(String value) {
+    m_Backend = value;
+  }
+
+  /**
+   * Returns the name of the backend to use for generating the code.
+   *
+   * @return		the name of the backend
+   */
+  public String getBackend() {
+    return m_Backend;
+  }
+
+  /**
+   * Sets the name of the frontend to use for parsing the classes.
+   *
+   * @param value	the name of the frontend
+   */
+  public void setFrontend(String value) {
+    m_Frontend = value;
+  }
+
+  /**
+   * Returns the name of the frontend to use for parsing the classes.
+   *
+   * @return		the name of the frontend
+   */
+  public String getFrontend() {
+    return m_Frontend;
+  }
+
+  /**
+   * Sets whether to generate pickling support for serializable classes.
+   *
+   * @param value	true if to generate
+   */
+  public void setPickle(boolean value) {
+    m_Pickle = value;
+  }
+
+  /**
+   * Returns whether to generate pickling support for serializable classes.
+   *
+   * @return		true if to generate
+   */
+  public boolean getPickle() {
+    return m_Pickle;
+  }
+
+  /**
+   * Sets the prebuilt descriptor index to use.
+   *
+   * @param value	the index file, null to always parse
+   */
+  public void setIndex(File value) {
+    m_Index = value;
+  }
+
+  /**
+   * Returns the prebuilt descriptor index to use.
+   *
+   * @return		the index file, null if not set
+   */
+  public File getIndex() {
+    return m_Index;
+  }
+
+  /**
+   * Sets the descriptor index file to build.
+   *
+   * @param value	the index file, null for generating code
+   */
+  public void setBuildIndex(File value) {
+    m_BuildIndex = value;
+  }
+
+  /**
+   * Returns the descriptor index file to build.
+   *
+   * @return		the index file, null if not set
+   */
+  public File getBuildIndex() {
+    return m_BuildIndex;
+  }
+
+  /**
+   * Sets whether to watch the classpath and regenerate the code on changes.
+   *
+   * @param value	true if to watch
+   */
+  public void setWatch(boolean value) {
+    m_Watch = value;
+  }
+
+  /**
+   * Returns whether to watch the classpath and regenerate the code on changes.
+   *
+   * @return		true if to watch
+   */
+  public boolean getWatch() {
+    return m_Watch;
+  }
+
+  /**
+   * Sets the time to wait for further changes before regenerating.
+   *
+   * @param value	the time in msec
+   */
+  public void setWatchDebounce(int value) {
+    m_WatchDebounce = value;
+  }
+
+  /**
+   * Returns the time to wait for further changes before regenerating.
+   *
+   * @return		the time in msec
+   */
+  public int getWatchDebounce() {
+    return m_WatchDebounce;
+  }
+
+  /**
+   * Sets the shard of the classes to generate the code for.
+   *
+   * @param value	the shard ("index/number", index is 0-based), null for all classes
+   */
+  public void setShard(String value) {
+    m_Shard = value;
+  }
+
+  /**
+   * Returns the shard of the classes to generate the code for.
+   *
+   * @return		the shard ("index/number"), null for all classes
+   */
+  public String getShard() {
+    return m_Shard;
+  }
+
+  /**
+   * Sets the shard outputs to merge instead of generating code.
+   *
+   * @param value	the outputs, empty to generate code
+   */
+  public void setMerge(List<File> value) {
+    m_Merge = value;
+  }
+
+  /**
+   * Returns the shard outputs to merge instead of generating code.
+   *
+   * @return		the outputs, empty to generate code
+   */
+  public List<File> getMerge() {
+    return m_Merge;
+  }
+
+  /**
+   * Sets whether to compile the generated code to bytecode (.pyc).
+   *
+   * @param value	true if to compile
+   */
+  public void setCompile(boolean value) {
+    m_Compile = value;
+  }
+
+  /**
+   * Returns whether to compile the generated code to bytecode (.pyc).
+   *
+   * @return		true if to compile
+   */
+  public boolean getCompile() {
+    return m_Compile;
+  }
+
+  /**
+   * Sets the Python executable to use for compiling.
+   *
+   * @param value	the executable
+   */
+  public void setPython(String value) {
+    m_Python = value;
+  }
+
+  /**
+   * Returns the Python executable to use for compiling.
+   *
+   * @return		the executable
+   */
+  public String getPython() {
+    return m_Python;
+  }
+
+  /**
+   * Sets the timeout for parsing a class with javap, after which the
+   * process gets killed.
+   *
+   * @param value	the timeout in seconds, 0 for no timeout
+   */
+  public void setTimeout(int value) {
+    m_Timeout = value;
+  }
+
+  /**
+   * Returns the timeout for parsing a class with javap, after which the
+   * process gets killed.
+   *
+   * @return		the timeout in seconds, 0 for no timeout
+   */
+  public int getTimeout() {
+    return m_Timeout;
+  }
+
+  /**
+   * Sets the maximum number of concurrent javap processes.
+   *
+   * @param value	the maximum, 0 for unlimited
+   */
+  public void setMaxProcesses(int value) {
+    m_MaxProcesses = value;
+  }
+
+  /**
+   * Returns the maximum number of concurrent javap processes.
+   *
+   * @return		the maximum, 0 for unlimited
+   */
+  public int getMaxProcesses() {
+    return m_MaxProcesses;
+  }
+
+  /**
+   * Sets the maximum heap for javap.
+   *
+   * @param value	the heap (eg 256m), null for the JVM default
+   */
+  public void setJavapMaxHeap(String value) {
+    m_JavapMaxHeap = value;
+  }
+
+  /**
+   * Returns the maximum heap for javap.
+   *
+   * @return		the heap (eg 256m), null for the JVM default
+   */
+  public String getJavapMaxHeap() {
+    return m_JavapMaxHeap;
+  }
+
+  /**
+   * Sets the time from which on parsing a class counts as slow.
+   *
+   * @param value	the threshold in msec
+   */
+  public void setSlow(int value) {
+    m_Slow = value;
+  }
+
+  /**
+   * Returns the time from which on parsing a class counts as slow.
+   *
+   * @return		the threshold in msec
+   */
+  public int getSlow() {
+    return m_Slow;
+  }
+
   /**
    * Performs some checks.
    *
    * @return		null if successful, otherwise error message
    */
   protected String check() {
-    if (!m_JavaHome.exists())
-      return "Java home directory does not exist: " + m_JavaHome;
-    if (!m_JavaHome.isDirectory())
-      return "Java home does not point to a directory: " + m_JavaHome;
-    if (System.getProperty("os.name").toLowerCase().contains("windows"))
-      m_Javap = new File(m_JavaHome.getAbsolutePath() + File.separator + "bin" + File.separator + "javap.exe");
-    else
-      m_Javap = new File(m_JavaHome.getAbsolutePath() + File.separator + "bin" + File.separator + "javap");
-    if (!m_Javap.exists())
-      return "javap binary does not exist: " + m_Javap;
+    if (m_Compile && ((m_OutputFile == null) || m_OutputFile.isDirectory()))
+      return "Compiling requires an output file!";
 
-    if (m_Classes.size() == 0)
+    if (m_Merge.size() > 0) {
+      for (File file : m_Merge) {
+	if (!file.isFile())
+	  return "Shard output does not exist: " + file;
+	if (!Sharding.manifestFile(file).isFile())
+	  return "Shard manifest does not exist: " + Sharding.manifestFile(file);
+      }
+      return null;
+    }
+
+    if (!m_Frontend.equals(Parser.NAME) && !m_Frontend.equals(ReflectionParser.NAME))
+      return "Unknown frontend '" + m_Frontend + "', available: " + Arrays.asList(Parser.NAME, ReflectionParser.NAME);
+
+    // only the javap frontend requires a JDK
+    if (m_Frontend.equals(Parser.NAME)) {
+      if (m_JavaHome == null)
+	return "No Java home directory provided!";
+      if (!m_JavaHome.exists())
+	return "Java home directory does not exist: " + m_JavaHome;
+      if (!m_JavaHome.isDirectory())
+	return "Java home does not point to a directory: " + m_JavaHome;
+      if (System.getProperty("os.name").toLowerCase().contains("windows"))
+	m_Javap = new File(m_JavaHome.getAbsolutePath() + File.separator + "bin" + File.separator + "javap.exe");
+      else
+	m_Javap = new File(m_JavaHome.getAbsolutePath() + File.separator + "bin" + File.separator + "javap");
+      if (!m_Javap.exists())
+	return "javap binary does not exist: " + m_Javap;
+    }
+
+    if ((m_Classes.size() == 0) && (m_ClassList == null) && (m_BuildIndex == null))
       return "No classnames provided!";
 
+    if ((m_ClassList != null) && !m_ClassList.equals("-") && !new File(m_ClassList).isFile())
+      return "Class list does not exist: " + m_ClassList;
+
+    if (m_NumThreads < 1)
+      return "At least one thread is required: " + m_NumThreads;
+
+    if (m_PWW)
+      m_Backend = PWWBackend.NAME;
+    if (!AbstractBackend.getBackends().contains(m_Backend))
+      return "Unknown backend '" + m_Backend + "', available: " + AbstractBackend.getBackends();
+
+    if ((m_Index != null) && !m_Index.isFile())
+      return "Descriptor index does not exist: " + m_Index;
+
+    if (m_Watch) {
+      if ((m_OutputFile == null) || m_OutputFile.isDirectory())
+	return "Watch mode requires an output file!";
+      if (m_WatchDebounce < 0)
+	return "Watch debounce time cannot be negative: " + m_WatchDebounce;
+    }
+
+    if (m_Timeout < 0)
+      return "Timeout cannot be negative: " + m_Timeout;
+    if (m_MaxProcesses < 0)
+      return "Maximum number of processes cannot be negative: " + m_MaxProcesses;
+    if (m_Slow < 0)
+      return "Slow threshold cannot be negative: " + m_Slow;
+    if ((m_JavapMaxHeap != null) && !m_JavapMaxHeap.matches("[0-9]+[kKmMgG]?"))
+      return "Invalid maximum heap for javap (eg 256m): " + m_JavapMaxHeap;
+
+    m_Sharding = null;
+    if (m_Shard != null) {
+      try {
+	m_Sharding = Sharding.parse(m_Shard);
+      }
+      catch (Exception e) {
+	return e.getMessage();
+      }
+      if ((m_OutputFile == null) || m_OutputFile.isDirectory())
+	return "Sharding requires an output file!";
+      if (m_Append || m_Watch || (m_BuildIndex != null))
+	return "Sharding cannot be combined with append, watch or index building!";
+    }
+
     m_SkipPattern = null;
     if (m_Skip != null) {
       try {
@@ -272,6 +789,17 @@ public class Main {
    * @return		null if successful, otherwise error message
    */
   protected String outputCode(StringBuilder code) {
+    return outputCode(code, m_Append);
+  }
+
+  /**
+   * Outputs the generated code.
+   *
+   * @param code	the code to output
+   * @param append	whether to append to the output file
+   * @return		null if successful, otherwise error message
+   */
+  protected String outputCode(StringBuilder code, boolean append) {
     String		msg;
     BufferedWriter 	bwriter;
     FileWriter		fwriter;
@@ -282,11 +810,11 @@ public class Main {
     }
     else {
       if (getDebug())
-        System.err.println("Writing to '" + m_OutputFile + " (append=" + m_Append + ")");
+        System.err.println("Writing to '" + m_OutputFile + " (append=" + append + ")");
       fwriter = null;
       bwriter = null;
       try {
-        fwriter = new FileWriter(m_OutputFile, m_Append);
+        fwriter = new FileWriter(m_OutputFile, append);
         bwriter = new BufferedWriter(fwriter);
         bwriter.write(code.toString());
         bwriter.newLine();
@@ -295,7 +823,7 @@ public class Main {
 	return null;
       }
       catch (Exception e) {
-        msg = "Failed to write to '" + m_OutputFile + "' (append=" + m_Append + ")!";
+        msg = "Failed to write to '" + m_OutputFile + "' (append=" + append + ")!";
         System.err.println(msg);
         e.printStackTrace();
         return msg + "\n" + e;
@@ -321,6 +849,568 @@ public class Main {
     }
   }
 
+  /**
+   * Opens the class list for reading.
+   *
+   * @return		the reader
+   * @throws IOException	if opening fails
+   */
+  protected BufferedReader openClassList() throws IOException {
+    if (m_ClassList.equals("-"))
+      return new BufferedReader(new InputStreamReader(System.in));
+    else
+      return new BufferedReader(new FileReader(m_ClassList));
+  }
+
+  /**
+   * Reads the next class name from the class list, skipping empty lines and
+   * comments.
+   *
+   * @param reader	the reader to use
+   * @return		the class name, null if no more available
+   * @throws IOException	if reading fails
+   */
+  protected String nextClass(BufferedReader reader) throws IOException {
+    String	result;
+
+    while ((result = reader.readLine()) != null) {
+      result = result.trim();
+      if (!result.isEmpty() && !result.startsWith("#"))
+	break;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns all the requested class names, i.e., the ones supplied
+   * explicitly as well as the ones from the class list.
+   *
+   * @return		the class names
+   * @throws IOException	if reading the class list fails
+   */
+  protected List<String> allClasses() throws IOException {
+    List<String>	result;
+    BufferedReader	reader;
+    String		classname;
+
+    result = new ArrayList<>(m_Classes);
+    if (m_ClassList != null) {
+      reader = openClassList();
+      try {
+	while ((classname = nextClass(reader)) != null)
+	  result.add(classname);
+      }
+      finally {
+	if (!m_ClassList.equals("-"))
+	  reader.close();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Creates the parser for the selected frontend.
+   *
+   * @return		the parser
+   */
+  protected AbstractParser newParser() {
+    AbstractParser	result;
+    Parser		javap;
+
+    if (m_Frontend.equals(ReflectionParser.NAME)) {
+      result = new ReflectionParser(m_ClassPath, m_SkipPattern);
+    }
+    else {
+      javap = new Parser(m_Javap, m_ClassPath, m_SkipPattern);
+      javap.setTimeout(m_Timeout);
+      javap.setMaxProcesses(m_MaxProcesses);
+      javap.setMaxHeap(m_JavapMaxHeap);
+      javap.setSlowThreshold(m_Slow);
+      result = javap;
+    }
+    // the index has to work for any setup
+    result.setCheckSerializable(m_Pickle || (m_BuildIndex != null));
+
+    return result;
+  }
+
+  /**
+   * Outputs the summary of slow and failed classes, if available.
+   *
+   * @param parser	the parser that was used
+   */
+  protected void summary(AbstractParser parser) {
+    String	summary;
+
+    if (!(parser instanceof Parser))
+      return;
+    summary = ((Parser) parser).summary();
+    if (summary != null)
+      System.err.println(summary);
+  }
+
+  /**
+   * Parses the requested classes (or all the classes on the classpath if
+   * none were requested) and stores them in the descriptor index, using
+   * the parser threads.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  protected String buildIndex() {
+    List<String>			classes;
+    List<ClassDescriptor>		descriptors;
+    List<Future<ClassDescriptor>>	futures;
+    ClassPathIndex			cpIndex;
+    final AbstractParser		parser;
+    ExecutorService			executor;
+    ClassDescriptor 			cls;
+
+    try {
+      classes = allClasses();
+    }
+    catch (IOException e) {
+      return "Failed to read class list: " + m_ClassList + "\n" + e;
+    }
+    try {
+      cpIndex = ClassPathIndex.get(m_ClassPath, m_ClassPathIndex);
+    }
+    catch (IOException e) {
+      return "Failed to index classpath: " + m_ClassPath + "\n" + e;
+    }
+    if (classes.size() == 0)
+      classes = cpIndex.classnames();
+
+    descriptors = new ArrayList<>();
+    futures     = new ArrayList<>();
+    parser      = newParser();
+    parser.setClassPathIndex(cpIndex);
+    executor    = Executors.newFixedThreadPool(m_NumThreads);
+    try {
+      for (final String classname : classes) {
+	futures.add(executor.submit(() -> {
+	  if (getDebug())
+	    System.err.println("Indexing: " + classname);
+	  return parser.parse(classname);
+	}));
+      }
+      for (Future<ClassDescriptor> future : futures) {
+	cls = future.get();
+	// non-public classes have no public members
+	if ((cls == null) || (cls.methods.size() == 0))
+	  continue;
+	descriptors.add(cls);
+      }
+    }
+    catch (Exception e) {
+      return "Failed to parse classes for descriptor index!\n" + e;
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    summary(parser);
+
+    if (getDebug())
+      System.err.println("Writing " + descriptors.size() + " descriptors to '" + m_BuildIndex + "'");
+    try {
+      DescriptorIndex.write(m_BuildIndex, descriptors, m_Skip);
+    }
+    catch (IOException e) {
+      return "Failed to write descriptor index: " + m_BuildIndex + "\n" + e;
+    }
+
+    return null;
+  }
+
+  /**
+   * Obtains the descriptor for the class, either from the index or by
+   * parsing it. Classes that are not in the classpath index get parsed
+   * using the full classpath.
+   *
+   * @param classname	the class to process
+   * @param parser	the parser to use
+   * @param index	the descriptor index, can be null
+   * @return		the descriptor, null if failed to parse
+   */
+  protected ClassDescriptor process(String classname, AbstractParser parser, DescriptorIndex index) {
+    ClassDescriptor	result;
+
+    if (getDebug())
+      System.err.println("Processing: " + classname);
+    result = null;
+    if (index != null)
+      result = index.get(classname);
+    if ((result == null) && !parser.canResolve(classname) && getDebug())
+      System.err.println("Not in classpath index, using full classpath: " + classname);
+    if (result == null)
+      result = parser.parse(classname);
+    if ((result != null) && getDebug())
+      System.err.println(result);
+
+    return result;
+  }
+
+  /**
+   * Generates the code once and then regenerates the code of all the classes
+   * that changed on the classpath. Only returns if an error occurs.
+   *
+   * @param parser	the parser to use
+   * @param generator	the generator to use
+   * @param index	the descriptor index, can be null
+   * @return		the error message
+   */
+  protected String watch(AbstractParser parser, Generator generator, DescriptorIndex index) {
+    String			result;
+    List<String>		classes;
+    Map<String,StringBuilder>	chunks;
+    StringBuilder		chunk;
+    StringBuilder		code;
+    ClassDescriptor		cls;
+    ClassPathWatcher		watcher;
+    Set<String>			changed;
+    long			start;
+    String			compileError;
+
+    try {
+      classes = allClasses();
+    }
+    catch (IOException e) {
+      return "Failed to read class list: " + m_ClassList + "\n" + e;
+    }
+
+    result = null;
+    chunks = new LinkedHashMap<>();
+    for (String classname : classes)
+      chunks.put(classname, null);
+    changed = chunks.keySet();
+    generator.setWrapped(new HashSet<>(classes));
+
+    try {
+      watcher = new ClassPathWatcher(m_ClassPath, classes, m_WatchDebounce);
+    }
+    catch (IOException e) {
+      return "Failed to watch classpath: " + m_ClassPath + "\n" + e;
+    }
+
+    try {
+      while (result == null) {
+	start = System.currentTimeMillis();
+	for (String classname : changed) {
+	  // the index is only used initially, it is stale once a class changes
+	  cls   = process(classname, parser, (chunks.get(classname) == null) ? index : null);
+	  chunk = new StringBuilder();
+	  if (cls != null)
+	    result = generator.generateClass(cls, chunk);
+	  if (result != null)
+	    break;
+	  chunks.put(classname, chunk);
+	}
+	if (result != null)
+	  break;
+
+	code = new StringBuilder();
+	generator.generateHeader(code);
+	for (StringBuilder c : chunks.values())
+	  code.append(c);
+	result = outputCode(code, false);
+	if (result != null)
+	  break;
+	if (m_Compile) {
+	  // keep watching, the next change might fix the code
+	  compileError = compile();
+	  if (compileError != null)
+	    System.err.println(compileError);
+	}
+	System.err.println("Generated " + changed.size() + " class(es) in " + (System.currentTimeMillis() - start) + "ms");
+
+	try {
+	  changed = watcher.waitForChanges();
+	  // pick up the new class files
+	  parser.reset();
+	  if (getDebug())
+	    System.err.println("Changed: " + changed);
+	}
+	catch (Exception e) {
+	  result = "Failed to watch classpath: " + m_ClassPath + "\n" + e;
+	}
+      }
+    }
+    finally {
+      try {
+	watcher.close();
+      }
+      catch (Exception e) {
+	// ignored
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Submits the class to the parser threads and adds it to the pipeline,
+   * unless it belongs to another shard.
+   *
+   * @param classname	the class to parse
+   * @param position	the position of the class in the requested order
+   * @param parser	the parser to use
+   * @param index	the descriptor index, can be null
+   * @param executor	the parser threads
+   * @param pending	the pipeline
+   * @throws InterruptedException	if interrupted while waiting for space in the pipeline
+   */
+  protected void submit(final String classname, int position, final AbstractParser parser, final DescriptorIndex index,
+			ExecutorService executor, BlockingQueue<Job> pending) throws InterruptedException {
+    Job		job;
+
+    if ((m_Sharding != null) && !m_Sharding.accept(classname))
+      return;
+    job = new Job(() -> process(classname, parser, index), position);
+    executor.execute(job);
+    pending.put(job);
+  }
+
+  /**
+   * Feeds the requested class names into the pipeline, submitting them to
+   * the parser threads. Blocks when the pipeline is full.
+   *
+   * @param parser	the parser to use
+   * @param index	the descriptor index, can be null
+   * @param classes	the explicitly requested classes
+   * @param executor	the parser threads
+   * @param pending	the pipeline
+   * @param end		the marker to add to the pipeline when finished
+   * @param errors	for storing any error
+   */
+  protected void feed(final AbstractParser parser, final DescriptorIndex index, List<String> classes, ExecutorService executor,
+		      BlockingQueue<Job> pending, Job end, List<String> errors) {
+    BufferedReader	reader;
+    String		classname;
+    int			position;
+
+    reader   = null;
+    position = 0;
+    try {
+      for (String name : classes)
+	submit(name, position++, parser, index, executor, pending);
+      if (m_ClassList != null) {
+	reader = openClassList();
+	while (!executor.isShutdown() && ((classname = nextClass(reader)) != null))
+	  submit(classname, position++, parser, index, executor, pending);
+      }
+    }
+    catch (InterruptedException e) {
+      // generation got aborted
+    }
+    catch (Exception e) {
+      errors.add("Failed to read class list: " + m_ClassList + "\n" + e);
+    }
+    finally {
+      if ((reader != null) && !m_ClassList.equals("-")) {
+	try {
+	  reader.close();
+	}
+	catch (Exception e) {
+	  // ignored
+	}
+      }
+      try {
+	pending.put(end);
+      }
+      catch (InterruptedException e) {
+	// ignored
+      }
+    }
+  }
+
+  /**
+   * Opens the output, i.e., either the output file or stdout.
+   *
+   * @return		the writer
+   * @throws IOException	if the file cannot be opened
+   */
+  protected Writer openOutput() throws IOException {
+    if (m_OutputFile == null)
+      return new BufferedWriter(new OutputStreamWriter(System.out));
+
+    if (getDebug())
+      System.err.println("Writing to '" + m_OutputFile + " (append=" + m_Append + ")");
+    return new BufferedWriter(new FileWriter(m_OutputFile, m_Append));
+  }
+
+  /**
+   * Compiles the output file to bytecode.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  protected String compile() {
+    BytecodeCompiler	compiler;
+    long		start;
+    String		result;
+
+    start    = System.currentTimeMillis();
+    compiler = new BytecodeCompiler(m_Python);
+    result   = compiler.compile(Arrays.asList(m_OutputFile));
+    if (getDebug())
+      System.err.println("Compiled " + m_OutputFile + " in " + (System.currentTimeMillis() - start) + "ms");
+
+    return result;
+  }
+
+  /**
+   * Merges the shard outputs into the output, in the order a single run
+   * would have generated the code.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  protected String merge() {
+    String	result;
+    Writer	writer;
+
+    try {
+      writer = openOutput();
+    }
+    catch (Exception e) {
+      return "Failed to write to '" + m_OutputFile + "' (append=" + m_Append + ")!\n" + e;
+    }
+
+    result = Sharding.merge(m_Merge, writer);
+    try {
+      if (m_OutputFile == null)
+	writer.flush();
+      else
+	writer.close();
+    }
+    catch (Exception e) {
+      // ignored
+    }
+
+    return result;
+  }
+
+  /**
+   * Generates the code in a bounded pipeline: a reader thread streams the
+   * class names to the parser threads, while the calling thread generates
+   * the code in the order the classes were supplied and writes it out
+   * straight away. Memory usage is therefore independent of the number
+   * of classes.
+   *
+   * @param parser	the parser to use
+   * @param generator	the generator to use
+   * @param index	the descriptor index, can be null
+   * @param classes	the explicitly requested classes
+   * @return		null if successful, otherwise error message
+   */
+  protected String generate(final AbstractParser parser, Generator generator, final DescriptorIndex index, final List<String> classes) {
+    String					result;
+    final List<String>				errors;
+    final ExecutorService			executor;
+    final BlockingQueue<Job>			pending;
+    final Job					end;
+    Thread					reader;
+    Job						job;
+    ClassDescriptor				cls;
+    StringBuilder				code;
+    Writer					writer;
+    boolean					header;
+    long					offset;
+
+    try {
+      writer = openOutput();
+    }
+    catch (Exception e) {
+      return "Failed to write to '" + m_OutputFile + "' (append=" + m_Append + ")!\n" + e;
+    }
+    if (m_Sharding != null) {
+      try {
+	m_Sharding.open(m_OutputFile);
+      }
+      catch (Exception e) {
+	return "Failed to write shard manifest: " + Sharding.manifestFile(m_OutputFile) + "\n" + e;
+      }
+    }
+
+    result   = null;
+    errors   = new ArrayList<>();
+    executor = Executors.newFixedThreadPool(m_NumThreads);
+    pending  = new ArrayBlockingQueue<>(4 * m_NumThreads);
+    end      = new Job(() -> null, -1);
+    reader   = new Thread(() -> feed(parser, index, classes, executor, pending, end, errors));
+    reader.start();
+
+    header = true;
+    offset = 0;
+    try {
+      while ((job = pending.take()) != end) {
+	cls = job.get();
+	if (cls == null)
+	  continue;
+	code = new StringBuilder();
+	if (header) {
+	  generator.generateHeader(code);
+	  writer.write(code.toString());
+	  offset = code.length();
+	  if (m_Sharding != null)
+	    m_Sharding.header(code.length());
+	  code.setLength(0);
+	}
+	header = false;
+	result = generator.generateClass(cls, code);
+	if (result != null)
+	  break;
+	writer.write(code.toString());
+	if (m_Sharding != null)
+	  m_Sharding.chunk(job.position, cls.name, offset, code.length());
+	offset += code.length();
+      }
+      if (result == null) {
+	writer.write("\n");
+	writer.flush();
+      }
+      // only the classes from the command-line are known upfront
+      if ((result == null) && header && (classes.size() > 0) && (m_ClassList == null))
+	result = "Failed to generate code for any of the classes: " + classes;
+    }
+    catch (Exception e) {
+      result = "Failed to generate code!\n" + e;
+    }
+    finally {
+      executor.shutdownNow();
+      reader.interrupt();
+      pending.clear();
+      try {
+	reader.join();
+      }
+      catch (InterruptedException e) {
+	// ignored
+      }
+      try {
+	if (m_OutputFile == null)
+	  writer.flush();
+	else
+	  writer.close();
+      }
+      catch (Exception e) {
+	// ignored
+      }
+      if (m_Sharding != null) {
+	try {
+	  m_Sharding.close();
+	}
+	catch (Exception e) {
+	  if (result == null)
+	    result = "Failed to write shard manifest: " + Sharding.manifestFile(m_OutputFile) + "\n" + e;
+	}
+      }
+    }
+
+    if ((result == null) && (errors.size() > 0))
+      result = errors.get(0);
+
+    return result;
+  }
+
   /**
    * Generates the code.
    *
@@ -328,34 +1418,76 @@ public class Main {
    */
   public String execute() {
     String		result;
-    StringBuilder 	code;
-    Parser 		parser;
-    ClassDescriptor 	cls;
+    AbstractParser	parser;
+    DescriptorIndex	index;
+    ClassPathIndex	cpIndex;
+    List<String>	classes;
+    List<String>	unresolved;
     Generator		generator;
 
     result = check();
 
+    if ((result == null) && (m_Merge.size() > 0)) {
+      result = merge();
+      if ((result == null) && m_Compile)
+	result = compile();
+      return result;
+    }
+
+    if ((result == null) && (m_BuildIndex != null))
+      return buildIndex();
+
     if (result == null) {
-      code      = new StringBuilder();
-      parser    = new Parser(m_Javap, m_ClassPath, m_SkipPattern);
-      generator = new Generator(m_PWW);
+      index = null;
+      if (m_Index != null) {
+	try {
+	  index = new DescriptorIndex(m_Index);
+	}
+	catch (IOException e) {
+	  return "Failed to load descriptor index: " + m_Index + "\n" + e;
+	}
+	// the descriptors only contain the methods that were not skipped
+	if ((index.getSkip() == null) ? (m_Skip != null) : !index.getSkip().equals(m_Skip))
+	  return "Descriptor index " + m_Index + " was built with skip pattern '" + index.getSkip() + "', "
+	    + "but '" + m_Skip + "' was requested!";
+      }
 
-      for (String classname : m_Classes) {
-	if (getDebug())
-	  System.err.println("Processing: " + classname);
-	cls = parser.parse(classname);
-	if (cls == null)
-	  continue;
-	if (getDebug())
-	  System.err.println(cls);
+      parser    = newParser();
+      generator = new Generator(AbstractBackend.forName(m_Backend));
+      generator.setPickle(m_Pickle);
 
-	result = generator.generate(cls, code);
-	if (result != null)
-	  break;
+      if (m_Watch) {
+	// classes can get added or moved while watching, always use the full classpath
+	result = watch(parser, generator, index);
       }
+      else {
+	try {
+	  cpIndex = ClassPathIndex.get(m_ClassPath, m_ClassPathIndex);
+	}
+	catch (IOException e) {
+	  return "Failed to index classpath: " + m_ClassPath + "\n" + e;
+	}
+	parser.setClassPathIndex(cpIndex);
+	if (getDebug())
+	  System.err.println("Classes on classpath: " + cpIndex.size());
+
+	classes    = new ArrayList<>(m_Classes);
+	unresolved = new ArrayList<>();
+	for (String classname : m_Classes) {
+	  if (((index == null) || (index.get(classname) == null)) && !parser.canResolve(classname))
+	    unresolved.add(classname);
+	}
+	if (unresolved.size() > 0)
+	  System.err.println("Classes not in classpath index, using full classpath: " + unresolved);
+	// classes from a class list only become known while streaming
+	if (m_ClassList == null)
+	  generator.setWrapped(new HashSet<>(classes));
 
-      if (result == null)
-	result = outputCode(code);
+	result = generate(parser, generator, index, classes);
+	summary(parser);
+	if ((result == null) && m_Compile)
+	  result = compile();
+      }
     }
 
     return result;
@@ -382,12 +1514,27 @@ public class Main {
       .dest("classpath")
       .required(true)
       .help("The CLASSPATH to use.");
+    parser.addArgument("--class-path-index")
+      .type(Arguments.fileType())
+      .dest("classpathindex")
+      .required(false)
+      .help("The file to persist the index of the classes on the classpath in; gets rebuilt automatically if the classpath changed.");
     parser.addArgument("--class")
       .setDefault(new ArrayList<String>())
       .dest("classes")
       .action(Arguments.append())
-      .required(true)
+      .required(false)
       .help("The classname of the class to generate a wrapper for, can be supplied multiple times.");
+    parser.addArgument("--class-list")
+      .dest("classlist")
+      .required(false)
+      .help("The file with further classnames to generate wrappers for (one per line, empty lines and lines starting with # get skipped), use - for stdin. The classnames get streamed, i.e., generation starts before the list has been read completely.");
+    parser.addArgument("--num-threads")
+      .type(Integer.class)
+      .setDefault(1)
+      .dest("numthreads")
+      .required(false)
+      .help("The number of threads to use for parsing the classes.");
     parser.addArgument("--output")
       .type(Arguments.fileType())
       .setDefault(new File("."))
@@ -412,7 +1559,88 @@ public class Main {
       .dest("pww")
       .required(false)
       .action(Arguments.storeTrue())
-      .help("For outputting python-weka-wrapper code.");
+      .help("For outputting python-weka-wrapper code, shortcut for '--backend " + PWWBackend.NAME + "'.");
+    parser.addArgument("--backend")
+      .choices(AbstractBackend.getBackends().toArray())
+      .setDefault(JavabridgeBackend.NAME)
+      .dest("backend")
+      .required(false)
+      .help("The backend to generate the code for.");
+    parser.addArgument("--frontend")
+      .choices(Parser.NAME, ReflectionParser.NAME)
+      .setDefault(Parser.NAME)
+      .dest("frontend")
+      .required(false)
+      .help("The frontend for parsing the classes: '" + Parser.NAME + "' runs the javap binary per class, '" + ReflectionParser.NAME + "' loads the classes (without initializing them) in an isolated class loader.");
+    parser.addArgument("--pickle")
+      .dest("pickle")
+      .required(false)
+      .action(Arguments.storeTrue())
+      .help("Generates __getstate__/__setstate__ for classes implementing java.io.Serializable, which requires the pj-wrapper jar on the classpath of the JVM that runs the generated code.");
+    parser.addArgument("--index")
+      .type(Arguments.fileType().verifyExists().verifyIsFile())
+      .dest("index")
+      .required(false)
+      .help("The prebuilt descriptor index to look up classes in before parsing them.");
+    parser.addArgument("--build-index")
+      .type(Arguments.fileType())
+      .dest("buildindex")
+      .required(false)
+      .help("Builds a descriptor index in the specified file from the classes (or all classes on the classpath if none supplied) instead of generating code.");
+    parser.addArgument("--watch")
+      .dest("watch")
+      .required(false)
+      .action(Arguments.storeTrue())
+      .help("Keeps watching the directories and jars of the classpath and regenerates the output file whenever requested classes change.");
+    parser.addArgument("--watch-debounce")
+      .type(Integer.class)
+      .setDefault(500)
+      .dest("watchdebounce")
+      .required(false)
+      .help("The time in msec to wait for further changes before regenerating in watch mode.");
+    parser.addArgument("--shard")
+      .dest("shard")
+      .required(false)
+      .help("Only generates the code for the classes of the shard 'index/number' (index is 0-based), assigned via the hash code of the class name; writes a manifest next to the output file for merging.");
+    parser.addArgument("--merge")
+      .type(Arguments.fileType().verifyExists().verifyIsFile())
+      .setDefault(new ArrayList<File>())
+      .dest("merge")
+      .action(Arguments.append())
+      .required(false)
+      .help("Merges the output of a shard into the output instead of generating code; needs to be supplied for all shards.");
+    parser.addArgument("--compile")
+      .dest("compile")
+      .required(false)
+      .action(Arguments.storeTrue())
+      .help("Compiles the generated code to bytecode (.pyc) using Python, failing on syntax errors.");
+    parser.addArgument("--python")
+      .setDefault("python3")
+      .dest("python")
+      .required(false)
+      .help("The Python executable to use for compiling.");
+    parser.addArgument("--timeout")
+      .type(Integer.class)
+      .setDefault(0)
+      .dest("timeout")
+      .required(false)
+      .help("The timeout in seconds for parsing a class with javap, after which the process gets killed; 0 for no timeout.");
+    parser.addArgument("--max-processes")
+      .type(Integer.class)
+      .setDefault(0)
+      .dest("maxprocesses")
+      .required(false)
+      .help("The maximum number of concurrent javap processes; 0 for unlimited.");
+    parser.addArgument("--javap-max-heap")
+      .dest("javapmaxheap")
+      .required(false)
+      .help("The maximum heap for javap, e.g., 256m.");
+    parser.addArgument("--slow")
+      .type(Integer.class)
+      .setDefault(5000)
+      .dest("slow")
+      .required(false)
+      .help("The time in msec from which on parsing a class with javap is reported as slow.");
 
     try {
       ns = parser.parseArgs(options);
@@ -424,12 +1652,30 @@ public class Main {
 
     setJavaHome(ns.get("javahome"));
     setClassPath(ns.getString("classpath"));
+    setClassPathIndex(ns.get("classpathindex"));
     setClasses(ns.getList("classes"));
+    setClassList(ns.getString("classlist"));
+    setNumThreads(ns.getInt("numthreads"));
     setOutputFile(ns.get("output"));
     setAppend(ns.get("append"));
     setSkip(ns.get("skip"));
     setDebug(ns.get("debug"));
     setPWW(ns.get("pww"));
+    setBackend(ns.getString("backend"));
+    setFrontend(ns.getString("frontend"));
+    setPickle(ns.get("pickle"));
+    setIndex(ns.get("index"));
+    setBuildIndex(ns.get("buildindex"));
+    setWatch(ns.get("watch"));
+    setWatchDebounce(ns.getInt("watchdebounce"));
+    setShard(ns.getString("shard"));
+    setMerge(ns.getList("merge"));
+    setCompile(ns.get("compile"));
+    setPython(ns.getString("python"));
+    setTimeout(ns.getInt("timeout"));
+    setMaxProcesses(ns.getInt("maxprocesses"));
+    setJavapMaxHeap(ns.getString("javapmaxheap"));
+    setSlow(ns.getInt("slow"));
 
     return true;
   }
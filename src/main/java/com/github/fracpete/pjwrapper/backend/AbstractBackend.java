@@ -0,0 +1,349 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractBackend.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ancestor for code emission backends. The templates of a backend get
+ * compiled once when the backend is instantiated.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractBackend {
+
+  /** the compiled module header. */
+  protected Template m_Header;
+
+  /** the compiled class definition. */
+  protected Template m_Class;
+
+  /** the compiled method. */
+  protected Template m_Method;
+
+  /** the compiled constructor. */
+  protected Template m_Constructor;
+
+  /** the compiled static method. */
+  protected Template m_StaticMethod;
+
+  /** the compiled property. */
+  protected Template m_Property;
+
+  /** the compiled pickling support for the module header. */
+  protected Template m_PickleHeader;
+
+  /** the compiled pickling support for serializable classes. */
+  protected Template m_Pickle;
+
+  /**
+   * Initializes the backend by compiling the templates.
+   */
+  protected AbstractBackend() {
+    m_Header       = Template.compile(headerTemplate());
+    m_Class        = Template.compile(classTemplate());
+    m_Method       = Template.compile(methodTemplate());
+    m_Constructor  = Template.compile(constructorTemplate());
+    m_StaticMethod = Template.compile(staticMethodTemplate());
+    m_Property     = Template.compile(propertyTemplate());
+    m_PickleHeader = Template.compile(pickleHeaderTemplate());
+    m_Pickle       = Template.compile(pickleTemplate());
+  }
+
+  /**
+   * Returns the name of the backend, as used on the command-line.
+   *
+   * @return		the name
+   */
+  public abstract String getName();
+
+  /**
+   * Returns the template for the module header, i.e., the imports.
+   *
+   * @return		the template
+   */
+  protected abstract String headerTemplate();
+
+  /**
+   * Returns the code of the wrapper registry, to be included in the module
+   * header. Classes register themselves via the _wrapper decorator, _wrap
+   * wraps a Java object in the registered wrapper and _unwrap returns the
+   * Java object of a wrapper.
+   *
+   * @return		the code
+   */
+  protected String registryTemplate() {
+    return
+      "_WRAPPERS = {}\n"
+	+ "\n"
+	+ "\n"
+	+ "def _wrapper(classname):\n"
+	+ "    \"\"\"\n"
+	+ "    Class decorator that registers the wrapper for the Java class.\n"
+	+ "    \"\"\"\n"
+	+ "    def register(cls):\n"
+	+ "        cls._pjwrapper = True\n"
+	+ "        _WRAPPERS[classname] = cls\n"
+	+ "        return cls\n"
+	+ "    return register\n"
+	+ "\n"
+	+ "\n"
+	+ "def _wrap(classname, jobject):\n"
+	+ "    \"\"\"\n"
+	+ "    Wraps the Java object in the wrapper registered for the class, if any.\n"
+	+ "    \"\"\"\n"
+	+ "    if jobject is None:\n"
+	+ "        return None\n"
+	+ "    wrapper = _WRAPPERS.get(classname)\n"
+	+ "    if wrapper is None:\n"
+	+ "        return jobject\n"
+	+ "    return wrapper(jobject)\n"
+	+ "\n"
+	+ "\n"
+	+ unwrapTemplate();
+  }
+
+  /**
+   * Returns the code of the _unwrap function, which returns the Java object
+   * of a wrapper and any other value (eg a Java object or None) as is.
+   * Only the generated wrappers are recognized, as Java objects can have
+   * members called "jobject" as well.
+   *
+   * @return		the code
+   */
+  protected String unwrapTemplate() {
+    return
+      "def _unwrap(value):\n"
+	+ "    \"\"\"\n"
+	+ "    Returns the Java object of a wrapper, otherwise the value itself.\n"
+	+ "    \"\"\"\n"
+	+ "    if getattr(type(value), \"_pjwrapper\", False):\n"
+	+ "        return value.jobject\n"
+	+ "    return value\n"
+	+ "\n"
+	+ "\n";
+  }
+
+  /**
+   * Returns the template for the start of a class definition.
+   *
+   * @return		the template
+   */
+  protected abstract String classTemplate();
+
+  /**
+   * Returns the template for a method.
+   *
+   * @return		the template
+   */
+  protected abstract String methodTemplate();
+
+  /**
+   * Returns the template for a constructor, i.e., a classmethod factory.
+   *
+   * @return		the template
+   */
+  protected abstract String constructorTemplate();
+
+  /**
+   * Returns the template for a static method.
+   *
+   * @return		the template
+   */
+  protected abstract String staticMethodTemplate();
+
+  /**
+   * Returns the template for a property (getter and setter).
+   *
+   * @return		the template
+   */
+  protected abstract String propertyTemplate();
+
+  /**
+   * Returns the template for the pickling support in the module header,
+   * i.e., the _Serialization helper that turns Java objects into bytes and
+   * back using com.github.fracpete.pjwrapper.runtime.Serialization.
+   *
+   * @return		the template
+   */
+  protected abstract String pickleHeaderTemplate();
+
+  /**
+   * Returns the template for the pickling support of serializable classes.
+   *
+   * @return		the template
+   */
+  protected String pickleTemplate() {
+    return
+      "    def __getstate__(self):\n"
+	+ "        \"\"\"\n"
+	+ "        Serializes the Java object for pickling.\n"
+	+ "        \"\"\"\n"
+	+ "        return _Serialization.serialize(self.jobject)\n"
+	+ "        \n"
+	+ "    def __setstate__(self, state):\n"
+	+ "        \"\"\"\n"
+	+ "        Restores the Java object when unpickling.\n"
+	+ "        \"\"\"\n"
+	+ "        self.jobject = _Serialization.deserialize(state)\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the start of the expression that converts a Python value to
+   * the specified type for passing it on to Java. The expression gets
+   * closed with ")" unless empty, i.e., no conversion.
+   *
+   * @param conversion	the kind of conversion
+   * @param type	the type as stored in the signature
+   * @return		the start of the expression, empty if none
+   */
+  public abstract String toJava(Conversion conversion, String type);
+
+  /**
+   * Returns the start of the expression that converts a value of the
+   * specified type returned by Java to Python. The expression gets closed
+   * with ")" unless empty, i.e., no conversion.
+   *
+   * @param conversion	the kind of conversion
+   * @param type	the type as stored in the signature
+   * @return		the start of the expression, empty if none
+   */
+  public abstract String fromJava(Conversion conversion, String type);
+
+  /**
+   * Returns the compiled module header.
+   *
+   * @return		the template
+   */
+  public Template getHeader() {
+    return m_Header;
+  }
+
+  /**
+   * Returns the compiled class definition.
+   *
+   * @return		the template
+   */
+  public Template getClassDefinition() {
+    return m_Class;
+  }
+
+  /**
+   * Returns the compiled method.
+   *
+   * @return		the template
+   */
+  public Template getMethod() {
+    return m_Method;
+  }
+
+  /**
+   * Returns the compiled constructor.
+   *
+   * @return		the template
+   */
+  public Template getConstructor() {
+    return m_Constructor;
+  }
+
+  /**
+   * Returns the compiled static method.
+   *
+   * @return		the template
+   */
+  public Template getStaticMethod() {
+    return m_StaticMethod;
+  }
+
+  /**
+   * Returns the compiled property.
+   *
+   * @return		the template
+   */
+  public Template getProperty() {
+    return m_Property;
+  }
+
+  /**
+   * Returns the compiled pickling support for the module header.
+   *
+   * @return		the template
+   */
+  public Template getPickleHeader() {
+    return m_PickleHeader;
+  }
+
+  /**
+   * Returns the compiled pickling support for serializable classes.
+   *
+   * @return		the template
+   */
+  public Template getPickle() {
+    return m_Pickle;
+  }
+
+  /**
+   * Returns the name of the backend.
+   *
+   * @return		the name
+   */
+  public String toString() {
+    return getName();
+  }
+
+  /**
+   * Returns the names of all available backends.
+   *
+   * @return		the names
+   */
+  public static List<String> getBackends() {
+    List<String>	result;
+
+    result = new ArrayList<>();
+    result.add(JavabridgeBackend.NAME);
+    result.add(PWWBackend.NAME);
+    result.add(JPypeBackend.NAME);
+
+    return result;
+  }
+
+  /**
+   * Instantiates the backend with the specified name.
+   *
+   * @param name	the name of the backend
+   * @return		the backend
+   * @throws IllegalArgumentException	if the backend is unknown
+   */
+  public static AbstractBackend forName(String name) {
+    switch (name) {
+      case JavabridgeBackend.NAME:
+	return new JavabridgeBackend();
+      case PWWBackend.NAME:
+	return new PWWBackend();
+      case JPypeBackend.NAME:
+	return new JPypeBackend();
+      default:
+	throw new IllegalArgumentException("Unknown backend: " + name);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Conversion.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+/**
+ * The kinds of conversion between Java and Python values, determined from
+ * the types in the signature at generation time.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public enum Conversion {
+  /** primitive types, passed straight through. */
+  PRIMITIVE,
+  /** java.lang.String. */
+  STRING,
+  /** the boxed primitive types, like java.lang.Integer. */
+  BOXED,
+  /** classes that have a generated wrapper. */
+  WRAPPED,
+  /** any other object (or array); results are passed straight through, but
+   * arguments get unwrapped, as a wrapper of a subtype can be supplied. */
+  OBJECT
+}
@@ -0,0 +1,357 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * JPypeBackend.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+/**
+ * Generates code for <a href="https://pypi.org/project/JPype1/">JPype</a>,
+ * which handles the method lookup and type conversion itself. Only the
+ * class reference gets cached at class level. Results get converted to
+ * Python values and wrappers depending on their type. Threads get attached
+ * to the JVM on first use and detached when they exit, the generated calls
+ * only check a thread-local attribute once the thread is attached.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class JPypeBackend
+  extends AbstractBackend {
+
+  /** the name of the backend. */
+  public static final String NAME = "jpype";
+
+  /** the code that attaches the thread on first use. */
+  public static final String ATTACH =
+    "        if _local.attachment is None:\n"
+      + "            _attach()\n";
+
+  /**
+   * Returns the name of the backend, as used on the command-line.
+   *
+   * @return		the name
+   */
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Returns the template for the module header, i.e., the imports.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String headerTemplate() {
+    return
+      "import threading\n"
+	+ "import jpype\n"
+	+ "\n"
+	+ "\n"
+	+ "class _Local(threading.local):\n"
+	+ "    \"\"\"\n"
+	+ "    Per-thread state, the attachment is None until the thread is attached.\n"
+	+ "    \"\"\"\n"
+	+ "    attachment = None\n"
+	+ "\n"
+	+ "\n"
+	+ "_local = _Local()\n"
+	+ "\n"
+	+ "\n"
+	+ "class _Attachment(object):\n"
+	+ "    \"\"\"\n"
+	+ "    Attaches the current thread to the JVM, unless already attached, and\n"
+	+ "    detaches it again when the thread exits.\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    def __init__(self):\n"
+	+ "        self.attached = not jpype.java.lang.Thread.isAttached()\n"
+	+ "        if self.attached:\n"
+	+ "            jpype.java.lang.Thread.attach()\n"
+	+ "            \n"
+	+ "    def detach(self):\n"
+	+ "        if self.attached:\n"
+	+ "            self.attached = False\n"
+	+ "            jpype.java.lang.Thread.detach()\n"
+	+ "            \n"
+	+ "    def __del__(self):\n"
+	+ "        # the thread is exiting or the interpreter shutting down\n"
+	+ "        try:\n"
+	+ "            self.detach()\n"
+	+ "        except Exception:\n"
+	+ "            pass\n"
+	+ "\n"
+	+ "\n"
+	+ "def _attach():\n"
+	+ "    \"\"\"\n"
+	+ "    Attaches the current thread to the JVM, unless already attached. The\n"
+	+ "    thread gets detached again when it exits.\n"
+	+ "    \"\"\"\n"
+	+ "    if _local.attachment is None:\n"
+	+ "        _local.attachment = _Attachment()\n"
+	+ "\n"
+	+ "\n"
+	+ "class attached(object):\n"
+	+ "    \"\"\"\n"
+	+ "    Context manager that attaches the current thread to the JVM for the\n"
+	+ "    duration of the block. A thread that was not attached before gets\n"
+	+ "    detached again afterwards.\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    def __enter__(self):\n"
+	+ "        self.created = _local.attachment is None\n"
+	+ "        _attach()\n"
+	+ "        return self\n"
+	+ "        \n"
+	+ "    def __exit__(self, *args):\n"
+	+ "        if self.created and (_local.attachment is not None):\n"
+	+ "            _local.attachment.detach()\n"
+	+ "            _local.attachment = None\n"
+	+ "\n"
+	+ "\n"
+	+ registryTemplate()
+	+ "def _from_string(value):\n"
+	+ "    \"\"\"\n"
+	+ "    Converts the Java string into a Python one.\n"
+	+ "    \"\"\"\n"
+	+ "    if value is None:\n"
+	+ "        return None\n"
+	+ "    return str(value)\n"
+	+ "\n"
+	+ "\n"
+	+ "def _int(value):\n"
+	+ "    \"\"\"\n"
+	+ "    Unboxes the Java integral number.\n"
+	+ "    \"\"\"\n"
+	+ "    if value is None:\n"
+	+ "        return None\n"
+	+ "    return int(value)\n"
+	+ "\n"
+	+ "\n"
+	+ "def _float(value):\n"
+	+ "    \"\"\"\n"
+	+ "    Unboxes the Java floating point number.\n"
+	+ "    \"\"\"\n"
+	+ "    if value is None:\n"
+	+ "        return None\n"
+	+ "    return float(value)\n"
+	+ "\n"
+	+ "\n"
+	+ "def _bool(value):\n"
+	+ "    \"\"\"\n"
+	+ "    Unboxes the Java boolean.\n"
+	+ "    \"\"\"\n"
+	+ "    if value is None:\n"
+	+ "        return None\n"
+	+ "    return bool(value)\n"
+	+ "\n"
+	+ "\n";
+  }
+
+  /**
+   * Returns the template for the start of a class definition.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String classTemplate() {
+    return
+      "@_wrapper(\"${classname}\")\n"
+	+ "class ${simplename}(object):\n"
+	+ "    \"\"\"\n"
+	+ "    classname: ${classname}\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    _jclass = None\n"
+	+ "    \n"
+	+ "    def __init__(self, jobject):\n"
+	+ "        self.jobject = jobject\n"
+	+ "        \n"
+	+ "    @classmethod\n"
+	+ "    def _class(cls):\n"
+	+ "        if cls._jclass is None:\n"
+	+ "            cls._jclass = jpype.JClass(\"${classname}\")\n"
+	+ "        return cls._jclass\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for a method.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String methodTemplate() {
+    return
+      "    def ${pyname}(self${params}):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${method}${signature}\n"
+	+ "        \"\"\"\n"
+	+ ATTACH
+	+ "        ${return}self.jobject.${safemethod}(${convertedargs})${returnend}\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for a constructor, i.e., a classmethod factory.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String constructorTemplate() {
+    return
+      "    @classmethod\n"
+	+ "    def ${pyname}(cls${params}):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${method}${signature}\n"
+	+ "        \"\"\"\n"
+	+ ATTACH
+	+ "        return cls(cls._class()(${convertedargs}))\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for a static method.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String staticMethodTemplate() {
+    return
+      "    @staticmethod\n"
+	+ "    def ${pyname}(${args}):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${method}${signature}\n"
+	+ "        \"\"\"\n"
+	+ ATTACH
+	+ "        ${return}${simplename}._class().${safemethod}(${convertedargs})${returnend}\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for the pickling support in the module header.
+   * JPype byte arrays support the buffer protocol, i.e., they get copied
+   * into Python bytes in bulk.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String pickleHeaderTemplate() {
+    return
+      "class _Serialization(object):\n"
+	+ "    \"\"\"\n"
+	+ "    Serializes Java objects into bytes and back with a single call each,\n"
+	+ "    caching the class reference.\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    jclass = None\n"
+	+ "    \n"
+	+ "    @classmethod\n"
+	+ "    def _class(cls):\n"
+	+ "        if cls.jclass is None:\n"
+	+ "            cls.jclass = jpype.JClass(\"com.github.fracpete.pjwrapper.runtime.Serialization\")\n"
+	+ "        return cls.jclass\n"
+	+ "        \n"
+	+ "    @classmethod\n"
+	+ "    def serialize(cls, jobject):\n"
+	+ ATTACH
+	+ "        return bytes(cls._class().serialize(jobject))\n"
+	+ "        \n"
+	+ "    @classmethod\n"
+	+ "    def deserialize(cls, state):\n"
+	+ ATTACH
+	+ "        return cls._class().deserialize(jpype.JArray(jpype.JByte)(state))\n"
+	+ "\n"
+	+ "\n";
+  }
+
+  /**
+   * Returns the start of the expression that converts a Python value to
+   * the specified type for passing it on to Java. JPype converts strings
+   * and numbers itself.
+   *
+   * @param conversion	the kind of conversion
+   * @param type	the type as stored in the signature
+   * @return		the start of the expression, empty if none
+   */
+  @Override
+  public String toJava(Conversion conversion, String type) {
+    if ((conversion == Conversion.WRAPPED) || (conversion == Conversion.OBJECT))
+      return "_unwrap(";
+    else
+      return "";
+  }
+
+  /**
+   * Returns the start of the expression that converts a value of the
+   * specified type returned by Java to Python.
+   *
+   * @param conversion	the kind of conversion
+   * @param type	the type as stored in the signature
+   * @return		the start of the expression, empty if none
+   */
+  @Override
+  public String fromJava(Conversion conversion, String type) {
+    switch (conversion) {
+      case STRING:
+	return "_from_string(";
+      case BOXED:
+	switch (type) {
+	  case "java/lang/Boolean":
+	    return "_bool(";
+	  case "java/lang/Character":
+	    return "_from_string(";
+	  case "java/lang/Float":
+	  case "java/lang/Double":
+	    return "_float(";
+	  default:
+	    return "_int(";
+	}
+      case WRAPPED:
+	return "_wrap(\"" + type.replace('/', '.') + "\", ";
+      default:
+	return "";
+    }
+  }
+
+  /**
+   * Returns the template for a property (getter and setter).
+   *
+   * @return		the template
+   */
+  @Override
+  protected String propertyTemplate() {
+    return
+      "    @property\n"
+	+ "    def ${property}(self):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${read}${readsignature}\n"
+	+ "        \"\"\"\n"
+	+ ATTACH
+	+ "        ${return}self.jobject.${read}()${returnend}\n"
+	+ "        \n"
+	+ "    @${property}.setter\n"
+	+ "    def ${property}(self, value):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${write}${writesignature}\n"
+	+ "        \"\"\"\n"
+	+ ATTACH
+	+ "        self.jobject.${write}(${convertedargs})\n"
+	+ "        \n";
+  }
+}
@@ -0,0 +1,434 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * JavabridgeBackend.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+/**
+ * Generates plain javabridge code. The class reference and the method IDs
+ * of constructors and static methods get looked up once and then cached
+ * at class level. The conversion of arguments and return values gets
+ * determined from the signature at generation time. Threads get attached
+ * to the JVM on first use and detached when they exit.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class JavabridgeBackend
+  extends AbstractBackend {
+
+  /** the name of the backend. */
+  public static final String NAME = "javabridge";
+
+  /**
+   * Returns the name of the backend, as used on the command-line.
+   *
+   * @return		the name
+   */
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Returns the template for the module header, i.e., the imports.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String headerTemplate() {
+    return
+      "import threading\n"
+	+ "import javabridge\n"
+	+ "\n"
+	+ "\n"
+	+ "_local = threading.local()\n"
+	+ "\n"
+	+ "\n"
+	+ "class _Attachment(object):\n"
+	+ "    \"\"\"\n"
+	+ "    Attaches the current thread to the JVM, unless already attached, and\n"
+	+ "    detaches it again when the thread exits.\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    def __init__(self):\n"
+	+ "        self.attached = javabridge.get_env() is None\n"
+	+ "        if self.attached:\n"
+	+ "            javabridge.attach()\n"
+	+ "        self.env = javabridge.get_env()\n"
+	+ "        \n"
+	+ "    def detach(self):\n"
+	+ "        if self.attached:\n"
+	+ "            self.attached = False\n"
+	+ "            javabridge.detach()\n"
+	+ "            \n"
+	+ "    def __del__(self):\n"
+	+ "        # the thread is exiting or the interpreter shutting down\n"
+	+ "        try:\n"
+	+ "            self.detach()\n"
+	+ "        except Exception:\n"
+	+ "            pass\n"
+	+ "\n"
+	+ "\n"
+	+ "def _env():\n"
+	+ "    \"\"\"\n"
+	+ "    Returns the JNI environment of the current thread, attaching the\n"
+	+ "    thread to the JVM on first use.\n"
+	+ "    \"\"\"\n"
+	+ "    try:\n"
+	+ "        return _local.attachment.env\n"
+	+ "    except AttributeError:\n"
+	+ "        _local.attachment = _Attachment()\n"
+	+ "        return _local.attachment.env\n"
+	+ "\n"
+	+ "\n"
+	+ "class attached(object):\n"
+	+ "    \"\"\"\n"
+	+ "    Context manager that attaches the current thread to the JVM for the\n"
+	+ "    duration of the block. A thread that was not attached before gets\n"
+	+ "    detached again afterwards.\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    def __enter__(self):\n"
+	+ "        self.created = not hasattr(_local, \"attachment\")\n"
+	+ "        return _env()\n"
+	+ "        \n"
+	+ "    def __exit__(self, *args):\n"
+	+ "        if self.created and hasattr(_local, \"attachment\"):\n"
+	+ "            _local.attachment.detach()\n"
+	+ "            del _local.attachment\n"
+	+ "\n"
+	+ "\n"
+	+ registryTemplate()
+	+ conversionTemplate();
+  }
+
+  /**
+   * Returns the code of the converters for strings and boxed types, to be
+   * included in the module header.
+   *
+   * @return		the code
+   */
+  protected String conversionTemplate() {
+    return
+      "def _to_string(value):\n"
+	+ "    \"\"\"\n"
+	+ "    Converts the Python string into a Java one.\n"
+	+ "    \"\"\"\n"
+	+ "    if value is None:\n"
+	+ "        return None\n"
+	+ "    return _env().new_string_utf(value)\n"
+	+ "\n"
+	+ "\n"
+	+ "def _from_string(jobject):\n"
+	+ "    \"\"\"\n"
+	+ "    Converts the Java string into a Python one.\n"
+	+ "    \"\"\"\n"
+	+ "    if jobject is None:\n"
+	+ "        return None\n"
+	+ "    return _env().get_string_utf(jobject)\n"
+	+ "\n"
+	+ "\n"
+	+ "class _Boxed(object):\n"
+	+ "    \"\"\"\n"
+	+ "    Boxes and unboxes values of a primitive type, caching the class\n"
+	+ "    reference and method IDs.\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    def __init__(self, classname, code, primitive):\n"
+	+ "        self.classname = classname\n"
+	+ "        self.code = code\n"
+	+ "        self.primitive = primitive\n"
+	+ "        self.jclass = None\n"
+	+ "        self.box_mid = None\n"
+	+ "        self.unbox_mid = None\n"
+	+ "        \n"
+	+ "    def _init(self):\n"
+	+ "        env = _env()\n"
+	+ "        jclass = env.find_class(self.classname)\n"
+	+ "        self.box_mid = env.get_static_method_id(jclass, \"valueOf\", \"(\" + self.code + \")L\" + self.classname + \";\")\n"
+	+ "        self.unbox_mid = env.get_method_id(jclass, self.primitive + \"Value\", \"()\" + self.code)\n"
+	+ "        self.jclass = jclass\n"
+	+ "        \n"
+	+ "    def box(self, value):\n"
+	+ "        if value is None:\n"
+	+ "            return None\n"
+	+ "        if self.jclass is None:\n"
+	+ "            self._init()\n"
+	+ "        return _env().call_static_method(self.jclass, self.box_mid, value)\n"
+	+ "        \n"
+	+ "    def unbox(self, jobject):\n"
+	+ "        if jobject is None:\n"
+	+ "            return None\n"
+	+ "        if self.jclass is None:\n"
+	+ "            self._init()\n"
+	+ "        return _env().call_method(jobject, self.unbox_mid)\n"
+	+ "\n"
+	+ "\n"
+	+ "_BOOLEAN = _Boxed(\"java/lang/Boolean\", \"Z\", \"boolean\")\n"
+	+ "_BYTE = _Boxed(\"java/lang/Byte\", \"B\", \"byte\")\n"
+	+ "_CHARACTER = _Boxed(\"java/lang/Character\", \"C\", \"char\")\n"
+	+ "_SHORT = _Boxed(\"java/lang/Short\", \"S\", \"short\")\n"
+	+ "_INTEGER = _Boxed(\"java/lang/Integer\", \"I\", \"int\")\n"
+	+ "_LONG = _Boxed(\"java/lang/Long\", \"J\", \"long\")\n"
+	+ "_FLOAT = _Boxed(\"java/lang/Float\", \"F\", \"float\")\n"
+	+ "_DOUBLE = _Boxed(\"java/lang/Double\", \"D\", \"double\")\n"
+	+ "\n"
+	+ "\n";
+  }
+
+  /**
+   * Returns the template for the cached class reference, to be used
+   * after the constructor of the Python class.
+   *
+   * @return		the template
+   */
+  protected String classReferenceTemplate() {
+    return
+      "    @classmethod\n"
+	+ "    def _class(cls):\n"
+	+ "        if cls._jclass is None:\n"
+	+ "            cls._jclass = _env().find_class(\"${jniname}\")\n"
+	+ "        return cls._jclass\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for the start of a class definition.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String classTemplate() {
+    return
+      "@_wrapper(\"${classname}\")\n"
+	+ "class ${simplename}(object):\n"
+	+ "    \"\"\"\n"
+	+ "    classname: ${classname}\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    _jclass = None\n"
+	+ "    \n"
+	+ "    def __init__(self, jobject):\n"
+	+ "        self.jobject = jobject\n"
+	+ "        \n"
+	+ classReferenceTemplate();
+  }
+
+  /**
+   * Returns the template for a method.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String methodTemplate() {
+    return
+      "    _mid_${pyname} = None\n"
+	+ "    \n"
+	+ "    def ${pyname}(self${params}):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${method}${signature}\n"
+	+ "        \"\"\"\n"
+	+ "        if ${simplename}._mid_${pyname} is None:\n"
+	+ "            ${simplename}._mid_${pyname} = _env().get_method_id(${simplename}._class(), \"${method}\", \"${descriptor}\")\n"
+	+ "        ${return}_env().call_method(self.jobject, ${simplename}._mid_${pyname}${convertedparams})${returnend}\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for a constructor, i.e., a classmethod factory.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String constructorTemplate() {
+    return
+      "    _mid_${pyname} = None\n"
+	+ "    \n"
+	+ "    @classmethod\n"
+	+ "    def ${pyname}(cls${params}):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${method}${signature}\n"
+	+ "        \"\"\"\n"
+	+ "        if cls._mid_${pyname} is None:\n"
+	+ "            cls._mid_${pyname} = _env().get_method_id(cls._class(), \"<init>\", \"${descriptor}\")\n"
+	+ "        return cls(_env().new_object(cls._class(), cls._mid_${pyname}${convertedparams}))\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for a static method.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String staticMethodTemplate() {
+    return
+      "    _mid_${pyname} = None\n"
+	+ "    \n"
+	+ "    @staticmethod\n"
+	+ "    def ${pyname}(${args}):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${method}${signature}\n"
+	+ "        \"\"\"\n"
+	+ "        if ${simplename}._mid_${pyname} is None:\n"
+	+ "            ${simplename}._mid_${pyname} = _env().get_static_method_id(${simplename}._class(), \"${method}\", \"${descriptor}\")\n"
+	+ "        ${return}_env().call_static_method(${simplename}._class(), ${simplename}._mid_${pyname}${convertedparams})${returnend}\n"
+	+ "        \n";
+  }
+
+  /**
+   * Returns the template for the pickling support in the module header.
+   * The byte array gets copied in bulk into the numpy array that javabridge
+   * returns, which is used as state as is: pickle protocol 5 writes its
+   * buffer without a further copy, and numpy.frombuffer restores it (or
+   * plain bytes) without copying before the bulk copy back into Java.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String pickleHeaderTemplate() {
+    return
+      "import numpy\n"
+	+ "\n"
+	+ "\n"
+	+ "class _Serialization(object):\n"
+	+ "    \"\"\"\n"
+	+ "    Serializes Java objects into bytes and back with a single call each,\n"
+	+ "    caching the class reference and method IDs.\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    jclass = None\n"
+	+ "    serialize_mid = None\n"
+	+ "    deserialize_mid = None\n"
+	+ "    \n"
+	+ "    @classmethod\n"
+	+ "    def _init(cls):\n"
+	+ "        env = _env()\n"
+	+ "        jclass = env.find_class(\"com/github/fracpete/pjwrapper/runtime/Serialization\")\n"
+	+ "        cls.serialize_mid = env.get_static_method_id(jclass, \"serialize\", \"(Ljava/lang/Object;)[B\")\n"
+	+ "        cls.deserialize_mid = env.get_static_method_id(jclass, \"deserialize\", \"([B)Ljava/lang/Object;\")\n"
+	+ "        cls.jclass = jclass\n"
+	+ "        \n"
+	+ "    @classmethod\n"
+	+ "    def serialize(cls, jobject):\n"
+	+ "        if cls.jclass is None:\n"
+	+ "            cls._init()\n"
+	+ "        env = _env()\n"
+	+ "        data = env.call_static_method(cls.jclass, cls.serialize_mid, jobject)\n"
+	+ "        return env.get_byte_array_elements(data)\n"
+	+ "        \n"
+	+ "    @classmethod\n"
+	+ "    def deserialize(cls, state):\n"
+	+ "        if cls.jclass is None:\n"
+	+ "            cls._init()\n"
+	+ "        env = _env()\n"
+	+ "        data = env.make_byte_array(numpy.frombuffer(state, numpy.uint8))\n"
+	+ "        return env.call_static_method(cls.jclass, cls.deserialize_mid, data)\n"
+	+ "\n"
+	+ "\n";
+  }
+
+  /**
+   * Returns the start of the expression that converts a Python value to
+   * the specified type for passing it on to Java.
+   *
+   * @param conversion	the kind of conversion
+   * @param type	the type as stored in the signature
+   * @return		the start of the expression, empty if none
+   */
+  @Override
+  public String toJava(Conversion conversion, String type) {
+    switch (conversion) {
+      case STRING:
+	return "_to_string(";
+      case BOXED:
+	return boxed(type) + ".box(";
+      case WRAPPED:
+      case OBJECT:
+	return "_unwrap(";
+      default:
+	return "";
+    }
+  }
+
+  /**
+   * Returns the start of the expression that converts a value of the
+   * specified type returned by Java to Python.
+   *
+   * @param conversion	the kind of conversion
+   * @param type	the type as stored in the signature
+   * @return		the start of the expression, empty if none
+   */
+  @Override
+  public String fromJava(Conversion conversion, String type) {
+    switch (conversion) {
+      case STRING:
+	return "_from_string(";
+      case BOXED:
+	return boxed(type) + ".unbox(";
+      case WRAPPED:
+	return "_wrap(\"" + type.replace('/', '.') + "\", ";
+      default:
+	return "";
+    }
+  }
+
+  /**
+   * Returns the name of the boxing converter for the type, e.g.,
+   * "_INTEGER" for java/lang/Integer.
+   *
+   * @param type	the boxed type
+   * @return		the name of the converter
+   */
+  protected String boxed(String type) {
+    return "_" + type.substring(type.lastIndexOf('/') + 1).toUpperCase();
+  }
+
+  /**
+   * Returns the template for a property (getter and setter).
+   *
+   * @return		the template
+   */
+  @Override
+  protected String propertyTemplate() {
+    return
+      "    _read_${property} = None\n"
+	+ "    \n"
+	+ "    _write_${property} = None\n"
+	+ "    \n"
+	+ "    @property\n"
+	+ "    def ${property}(self):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${read}${readsignature}\n"
+	+ "        \"\"\"\n"
+	+ "        if ${simplename}._read_${property} is None:\n"
+	+ "            ${simplename}._read_${property} = _env().get_method_id(${simplename}._class(), \"${read}\", \"${readdescriptor}\")\n"
+	+ "        ${return}_env().call_method(self.jobject, ${simplename}._read_${property})${returnend}\n"
+	+ "        \n"
+	+ "    @${property}.setter\n"
+	+ "    def ${property}(self, value):\n"
+	+ "        \"\"\"\n"
+	+ "        method: ${write}${writesignature}\n"
+	+ "        \"\"\"\n"
+	+ "        if ${simplename}._write_${property} is None:\n"
+	+ "            ${simplename}._write_${property} = _env().get_method_id(${simplename}._class(), \"${write}\", \"${writedescriptor}\")\n"
+	+ "        _env().call_method(self.jobject, ${simplename}._write_${property}${convertedparams})\n"
+	+ "        \n";
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PWWBackend.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+/**
+ * Generates python-weka-wrapper code.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class PWWBackend
+  extends JavabridgeBackend {
+
+  /** the name of the backend. */
+  public static final String NAME = "pww";
+
+  /**
+   * Returns the name of the backend, as used on the command-line.
+   *
+   * @return		the name
+   */
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Returns the template for the module header, i.e., the imports.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String headerTemplate() {
+    return
+      "from weka.core.classes import JavaObject\n"
+	+ super.headerTemplate();
+  }
+
+  /**
+   * Returns the code of the _unwrap function. Any JavaObject gets unwrapped,
+   * i.e., the objects of python-weka-wrapper as well.
+   *
+   * @return		the code
+   */
+  @Override
+  protected String unwrapTemplate() {
+    return
+      "def _unwrap(value):\n"
+	+ "    \"\"\"\n"
+	+ "    Returns the Java object of a JavaObject, otherwise the value itself.\n"
+	+ "    \"\"\"\n"
+	+ "    if isinstance(value, JavaObject):\n"
+	+ "        return value.jobject\n"
+	+ "    return value\n"
+	+ "\n"
+	+ "\n";
+  }
+
+  /**
+   * Returns the template for the start of a class definition.
+   *
+   * @return		the template
+   */
+  @Override
+  protected String classTemplate() {
+    return
+      "@_wrapper(\"${classname}\")\n"
+	+ "class ${simplename}(JavaObject):\n"
+	+ "    \"\"\"\n"
+	+ "    classname: ${classname}\n"
+	+ "    \"\"\"\n"
+	+ "    \n"
+	+ "    _jclass = None\n"
+	+ "    \n"
+	+ "    def __init__(self, jobject):\n"
+	+ "        super(${simplename}, self).__init__(jobject)\n"
+	+ "        \n"
+	+ classReferenceTemplate();
+  }
+}
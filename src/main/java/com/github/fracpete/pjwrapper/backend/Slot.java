@@ -0,0 +1,81 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Slot.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+/**
+ * The values that can be referenced in templates, using ${name} with the
+ * lower case name of the slot.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public enum Slot {
+  /** the fully qualified class name. */
+  CLASSNAME,
+  /** the class name without package, with the "$" of nested classes replaced by "_". */
+  SIMPLENAME,
+  /** the fully qualified class name in JNI form, i.e., with slashes. */
+  JNINAME,
+  /** the Java method name. */
+  METHOD,
+  /** the Java method name, with an underscore appended if it is a Python keyword. */
+  SAFEMETHOD,
+  /** the Python method name. */
+  PYNAME,
+  /** the method signature. */
+  SIGNATURE,
+  /** the JNI descriptor of the method, e.g., (I)V. */
+  DESCRIPTOR,
+  /** the parameters of the Python method, each prefixed with ", ". */
+  PARAMS,
+  /** the comma-separated arguments to pass on to Java. */
+  ARGS,
+  /** the arguments converted for Java, each prefixed with ", ". */
+  CONVERTEDPARAMS,
+  /** the comma-separated arguments converted for Java. */
+  CONVERTEDARGS,
+  /** the start of the return statement, including the opening of the result conversion (empty for void). */
+  RETURN,
+  /** the closing of the result conversion. */
+  RETURNEND,
+  /** the Python property name. */
+  PROPERTY,
+  /** the Java name of the property's read method. */
+  READ,
+  /** the signature of the property's read method. */
+  READSIGNATURE,
+  /** the JNI descriptor of the property's read method. */
+  READDESCRIPTOR,
+  /** the Java name of the property's write method. */
+  WRITE,
+  /** the signature of the property's write method. */
+  WRITESIGNATURE,
+  /** the JNI descriptor of the property's write method. */
+  WRITEDESCRIPTOR;
+
+  /**
+   * Returns the name to use in templates.
+   *
+   * @return		the name
+   */
+  public String key() {
+    return name().toLowerCase();
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Template.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Code template that gets compiled once into an emission plan of literal
+ * segments and slot writers, which then gets replayed for each class
+ * without interpreting the template again.
+ * <br>
+ * Slots are referenced via ${name}, see {@link Slot}.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Template {
+
+  /**
+   * A part of the emission plan.
+   */
+  public interface Segment {
+
+    /**
+     * Writes the segment.
+     *
+     * @param code	for storing the code
+     * @param values	the slot values, indexed by slot ordinal
+     */
+    void write(StringBuilder code, String[] values);
+  }
+
+  /** the slots, indexed by their template key. */
+  protected static Map<String,Slot> SLOTS;
+  static {
+    SLOTS = new HashMap<>();
+    for (Slot slot : Slot.values())
+      SLOTS.put(slot.key(), slot);
+  }
+
+  /** the emission plan. */
+  protected Segment[] m_Segments;
+
+  /**
+   * Initializes the template with the emission plan.
+   *
+   * @param segments	the plan
+   */
+  protected Template(Segment[] segments) {
+    m_Segments = segments;
+  }
+
+  /**
+   * Emits the code.
+   *
+   * @param code	for storing the code
+   * @param values	the slot values, indexed by slot ordinal
+   */
+  public void emit(StringBuilder code, String[] values) {
+    for (Segment segment : m_Segments)
+      segment.write(code, values);
+  }
+
+  /**
+   * Returns an empty array for the slot values.
+   *
+   * @return		the array
+   */
+  public static String[] newValues() {
+    return new String[Slot.values().length];
+  }
+
+  /**
+   * Returns a segment that writes the literal text.
+   *
+   * @param text	the text to write
+   * @return		the segment
+   */
+  protected static Segment literal(final String text) {
+    return (code, values) -> code.append(text);
+  }
+
+  /**
+   * Returns a segment that writes the value of the slot.
+   *
+   * @param slot	the slot to write
+   * @return		the segment
+   */
+  protected static Segment slot(Slot slot) {
+    final int	ordinal;
+
+    ordinal = slot.ordinal();
+    return (code, values) -> code.append(values[ordinal]);
+  }
+
+  /**
+   * Compiles the template text into an emission plan.
+   *
+   * @param text	the template text
+   * @return		the compiled template
+   * @throws IllegalArgumentException	if the template references unknown or unterminated slots
+   */
+  public static Template compile(String text) {
+    List<Segment>	segments;
+    int			pos;
+    int			start;
+    int			end;
+    Slot		slot;
+
+    segments = new ArrayList<>();
+    pos      = 0;
+    while (pos < text.length()) {
+      start = text.indexOf("${", pos);
+      if (start == -1)
+	start = text.length();
+      if (start > pos)
+	segments.add(literal(text.substring(pos, start)));
+      if (start == text.length())
+	break;
+
+      end = text.indexOf('}', start);
+      if (end == -1)
+	throw new IllegalArgumentException("Unterminated slot at position " + start + ": " + text);
+      slot = SLOTS.get(text.substring(start + 2, end));
+      if (slot == null)
+	throw new IllegalArgumentException("Unknown slot '" + text.substring(start + 2, end) + "': " + text);
+      segments.add(slot(slot));
+      pos = end + 1;
+    }
+
+    return new Template(segments.toArray(new Segment[segments.size()]));
+  }
+}
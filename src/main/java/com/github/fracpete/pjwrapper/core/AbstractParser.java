@@ -0,0 +1,162 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractParser.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import java.util.regex.Pattern;
+
+/**
+ * Ancestor for frontends that turn classes into descriptors.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractParser {
+
+  /** the classpath. */
+  protected String m_Classpath;
+
+  /** the skip pattern. */
+  protected Pattern m_SkipPattern;
+
+  /** the index for locating classes on the classpath. */
+  protected ClassPathIndex m_ClassPathIndex;
+
+  /** whether to determine whether classes are serializable. */
+  protected boolean m_CheckSerializable;
+
+  /**
+   * Initializes the parser.
+   *
+   * @param classpath	the classpath to use
+   * @param skipPattern	the pattern for skipping methods
+   */
+  protected AbstractParser(String classpath, Pattern skipPattern) {
+    m_Classpath         = classpath;
+    m_SkipPattern       = skipPattern;
+    m_ClassPathIndex    = null;
+    m_CheckSerializable = false;
+  }
+
+  /**
+   * Sets the index for locating classes on the classpath.
+   *
+   * @param value	the index, null if not available
+   */
+  public void setClassPathIndex(ClassPathIndex value) {
+    m_ClassPathIndex = value;
+  }
+
+  /**
+   * Returns the index for locating classes on the classpath.
+   *
+   * @return		the index, null if not set
+   */
+  public ClassPathIndex getClassPathIndex() {
+    return m_ClassPathIndex;
+  }
+
+  /**
+   * Sets whether to determine whether classes implement java.io.Serializable.
+   * Frontends can skip the check if it is expensive and not required.
+   *
+   * @param value	true if to check
+   */
+  public void setCheckSerializable(boolean value) {
+    m_CheckSerializable = value;
+  }
+
+  /**
+   * Returns whether to determine whether classes implement java.io.Serializable.
+   *
+   * @return		true if to check
+   */
+  public boolean getCheckSerializable() {
+    return m_CheckSerializable;
+  }
+
+  /**
+   * Checks whether the class can be located, either on the classpath or
+   * in the JDK. Always true if no index is available.
+   *
+   * @param classname	the class to check
+   * @return		true if the class can be located
+   */
+  public boolean canResolve(String classname) {
+    return (m_ClassPathIndex == null)
+      || m_ClassPathIndex.contains(classname)
+      || ClassPathIndex.isPlatformClass(classname);
+  }
+
+  /**
+   * Discards any cached state, e.g., after classes on the classpath changed.
+   * <br>
+   * Default implementation does nothing.
+   */
+  public void reset() {
+  }
+
+  /**
+   * Checks whether the method is to be skipped.
+   *
+   * @param name	the name of the method
+   * @return		true if to skip
+   */
+  protected boolean skip(String name) {
+    return (m_SkipPattern != null) && m_SkipPattern.matcher(name).matches();
+  }
+
+  /**
+   * Determines the get/set pairs among the methods and adds them as
+   * properties.
+   *
+   * @param cls		the class to update
+   */
+  protected void determineProperties(ClassDescriptor cls) {
+    String		tmp;
+    PropertyDescriptor	property;
+
+    for (MethodDescriptor m: cls.methods) {
+      if (!m.name.startsWith("set") || (m.name.length() < 4) || !m.signature.raw.endsWith("V"))
+        continue;
+      if (m.isStatic || (m.signature.argTypes.size() != 1))
+        continue;
+      tmp = "g" + m.name.substring(1);
+      for (MethodDescriptor m2: cls.methods) {
+        if (m2.name.equals(tmp) && !m2.isStatic && (m2.signature.argTypes.size() == 0)) {
+          property = new PropertyDescriptor();
+          property.name  = m.name.substring(3, 4).toLowerCase() + m.name.substring(4);
+          property.write = m;
+          property.read  = m2;
+          m.isProperty   = true;
+          m2.isProperty  = true;
+          cls.properties.add(property);
+	}
+      }
+    }
+  }
+
+  /**
+   * Parses the class.
+   *
+   * @param classname	the classname
+   * @return		the parsed descriptor, or null if failed
+   */
+  public abstract ClassDescriptor parse(String classname);
+}
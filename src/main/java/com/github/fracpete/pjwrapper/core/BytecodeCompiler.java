@@ -0,0 +1,189 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BytecodeCompiler.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import com.github.fracpete.processoutput4j.output.CollectingProcessOutput;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles generated Python modules to bytecode (.pyc), using a single
+ * Python process. Syntax errors get mapped back to the Java class and
+ * method via the docstrings of the generated code.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BytecodeCompiler {
+
+  /** the Python script that compiles the modules supplied as arguments. */
+  public static final String SCRIPT =
+    "import py_compile, sys\n"
+      + "failed = False\n"
+      + "for f in sys.argv[1:]:\n"
+      + "    try:\n"
+      + "        py_compile.compile(f, doraise=True)\n"
+      + "    except py_compile.PyCompileError as e:\n"
+      + "        failed = True\n"
+      + "        v = e.exc_value\n"
+      + "        print('%s\\t%s\\t%s' % (f, getattr(v, 'lineno', None) or 0, getattr(v, 'msg', None) or str(v)))\n"
+      + "sys.exit(1 if failed else 0)\n";
+
+  /** the prefix of the class docstring. */
+  public static final String CLASSNAME = "classname: ";
+
+  /** the prefix of the method docstring. */
+  public static final String METHOD = "method: ";
+
+  /** the Python executable. */
+  protected String m_Python;
+
+  /**
+   * Initializes the compiler.
+   *
+   * @param python	the Python executable
+   */
+  public BytecodeCompiler(String python) {
+    m_Python = python;
+  }
+
+  /**
+   * Returns the Python executable.
+   *
+   * @return		the executable
+   */
+  public String getPython() {
+    return m_Python;
+  }
+
+  /**
+   * Determines the Java class and method that the line of the generated
+   * code originates from, by looking for the closest docstrings before it.
+   *
+   * @param file	the generated code
+   * @param line	the line number (1-based)
+   * @return		the origin, e.g., "java.util.ArrayList, method: add(Ljava/lang/Object;)Z", null if unknown
+   */
+  public static String origin(File file, int line) {
+    String		classname;
+    String		method;
+    String		current;
+    String		tmp;
+    BufferedReader	reader;
+    int			i;
+
+    classname = null;
+    method    = null;
+    reader    = null;
+    try {
+      reader = new BufferedReader(new FileReader(file));
+      i      = 0;
+      while ((i < line) && ((current = reader.readLine()) != null)) {
+	i++;
+	tmp = current.trim();
+	if (current.startsWith("    " + CLASSNAME)) {
+	  classname = tmp.substring(CLASSNAME.length());
+	  method    = null;
+	}
+	else if (current.startsWith("        " + METHOD)) {
+	  method = tmp.substring(METHOD.length());
+	}
+      }
+    }
+    catch (IOException e) {
+      return null;
+    }
+    finally {
+      if (reader != null) {
+	try {
+	  reader.close();
+	}
+	catch (Exception e) {
+	  // ignored
+	}
+      }
+    }
+
+    if (classname == null)
+      return null;
+    else if (method == null)
+      return classname;
+    else
+      return classname + ", method: " + method;
+  }
+
+  /**
+   * Compiles the modules.
+   *
+   * @param files	the modules to compile
+   * @return		null if successful, otherwise error message(s)
+   */
+  public String compile(List<File> files) {
+    StringBuilder		result;
+    List<String>		cmd;
+    ProcessBuilder		builder;
+    CollectingProcessOutput	output;
+    String[]			parts;
+    String			origin;
+
+    cmd = new ArrayList<>();
+    cmd.add(m_Python);
+    cmd.add("-c");
+    cmd.add(SCRIPT);
+    for (File file : files)
+      cmd.add(file.getAbsolutePath());
+    builder = new ProcessBuilder();
+    builder.command(cmd);
+    output = new CollectingProcessOutput();
+
+    try {
+      output.monitor(builder);
+    }
+    catch (Exception e) {
+      return "Failed to execute Python: " + m_Python + "\n" + e;
+    }
+
+    if (output.getExitCode() == 0)
+      return null;
+
+    result = new StringBuilder();
+    for (String line : output.getStdOut().split("\n")) {
+      parts = line.split("\t", 3);
+      if (parts.length != 3)
+	continue;
+      if (result.length() > 0)
+	result.append("\n");
+      result.append("Syntax error in ").append(parts[0]).append(", line ").append(parts[1]);
+      origin = origin(new File(parts[0]), Integer.parseInt(parts[1]));
+      if (origin != null)
+	result.append(" (").append(origin).append(")");
+      result.append(": ").append(parts[2]);
+    }
+    if (result.length() == 0)
+      result.append("Failed to compile ").append(files).append(" (exit code ").append(output.getExitCode()).append(")\n").append(output.getStdErr());
+
+    return result.toString();
+  }
+}
@@ -31,6 +31,9 @@ public class ClassDescriptor {
   /** the name of the class. */
   public String name;
 
+  /** whether the class implements java.io.Serializable. */
+  public boolean isSerializable;
+
   /** the methods. */
   public List<MethodDescriptor> methods = new ArrayList<>();
 
@@ -46,7 +49,7 @@ public class ClassDescriptor {
     StringBuilder result;
 
     result = new StringBuilder();
-    result.append(name).append("\n");
+    result.append(name).append(isSerializable ? " [serializable]" : "").append("\n");
     if (methods.size() > 0) {
       result.append("  Methods:\n");
       for (MethodDescriptor method : methods)
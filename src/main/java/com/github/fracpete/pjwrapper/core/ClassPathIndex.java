@@ -0,0 +1,460 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ClassPathIndex.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Maps the fully qualified names of all the classes on a classpath to the
+ * jar or directory that holds them. Jars are indexed using their central
+ * directory only, without reading any class data.
+ * <br>
+ * Only the content of jars gets persisted, as a changed jar can be detected
+ * via its timestamp. Directories are scanned again whenever the index gets
+ * loaded, since adding a class file to a sub-directory does not change the
+ * timestamp of the classpath element itself.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ClassPathIndex {
+
+  /** the magic number of persisted indices ("PJWC"). */
+  public static final int MAGIC = 0x504A5743;
+
+  /** the format version of persisted indices. */
+  public static final int VERSION = 2;
+
+  /** the classpath elements (absolute paths). */
+  protected List<String> m_Elements;
+
+  /** the modification timestamps of the classpath elements (-1 for directories). */
+  protected List<Long> m_Timestamps;
+
+  /** the classes of the jars, null for directories. */
+  protected List<List<String>> m_Classes;
+
+  /** the class name -> index of the classpath element. */
+  protected Map<String,Integer> m_Locations;
+
+  /**
+   * Initializes an empty index.
+   */
+  protected ClassPathIndex() {
+    initialize();
+  }
+
+  /**
+   * Builds the index for the classpath.
+   *
+   * @param classpath	the classpath to index
+   * @throws IOException	if reading a jar fails
+   */
+  public ClassPathIndex(String classpath) throws IOException {
+    initialize();
+    for (String element: elements(classpath))
+      addElement(element, new File(element).lastModified(), null);
+  }
+
+  /**
+   * Initializes the members.
+   */
+  protected void initialize() {
+    m_Elements   = new ArrayList<>();
+    m_Timestamps = new ArrayList<>();
+    m_Classes    = new ArrayList<>();
+    m_Locations  = new HashMap<>();
+  }
+
+  /**
+   * Adds the classpath element. Directories are always scanned, jars only
+   * get read if their classes are not supplied.
+   *
+   * @param element	the classpath element (absolute path)
+   * @param timestamp	the modification timestamp of the jar
+   * @param classes	the classes of the jar, null to read them
+   * @throws IOException	if reading the jar fails
+   */
+  protected void addElement(String element, long timestamp, List<String> classes) throws IOException {
+    File	file;
+    int		index;
+    ZipFile	zip;
+    Enumeration<? extends ZipEntry> entries;
+    ZipEntry	entry;
+
+    file  = new File(element);
+    index = m_Elements.size();
+    m_Elements.add(element);
+    if (file.isDirectory()) {
+      m_Timestamps.add(-1L);
+      m_Classes.add(null);
+      add(file, "", index);
+      return;
+    }
+
+    if (classes == null) {
+      classes = new ArrayList<>();
+      if (file.isFile()) {
+	zip = new ZipFile(file);
+	try {
+	  entries = zip.entries();
+	  while (entries.hasMoreElements()) {
+	    entry = entries.nextElement();
+	    if (isClass(entry.getName()))
+	      classes.add(toClassname(entry.getName()));
+	  }
+	}
+	finally {
+	  zip.close();
+	}
+      }
+    }
+    m_Timestamps.add(timestamp);
+    m_Classes.add(classes);
+    for (String classname: classes)
+      add(classname, index);
+  }
+
+  /**
+   * Splits the classpath into its elements, turning them into absolute paths.
+   * Like with the java launcher, a "*" element (e.g., "lib/*") expands to the
+   * jars in that directory, which get sorted by name.
+   *
+   * @param classpath	the classpath to split
+   * @return		the elements
+   */
+  public static List<String> elements(String classpath) {
+    List<String>	result;
+    List<String>	jars;
+    File		dir;
+    File[]		files;
+
+    result = new ArrayList<>();
+    for (String element: classpath.split(File.pathSeparator)) {
+      if (element.trim().isEmpty())
+	continue;
+      if (element.equals("*") || element.endsWith("/*") || element.endsWith(File.separator + "*")) {
+	dir   = new File(element.substring(0, element.length() - 1));
+	files = dir.getAbsoluteFile().listFiles();
+	if (files == null)
+	  continue;
+	jars = new ArrayList<>();
+	for (File file: files) {
+	  if (file.isFile() && file.getName().toLowerCase().endsWith(".jar"))
+	    jars.add(file.getAbsolutePath());
+	}
+	jars.sort(null);
+	result.addAll(jars);
+      }
+      else {
+	result.add(new File(element).getAbsolutePath());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds the class, unless an earlier classpath element already holds it.
+   *
+   * @param classname	the class to add
+   * @param index	the index of the classpath element
+   */
+  protected void add(String classname, int index) {
+    if (!m_Locations.containsKey(classname))
+      m_Locations.put(classname, index);
+  }
+
+  /**
+   * Recursively adds the classes in the directory.
+   *
+   * @param dir		the directory to scan
+   * @param prefix	the path prefix relative to the classpath element
+   * @param index	the index of the classpath element
+   */
+  protected void add(File dir, String prefix, int index) {
+    File[]	files;
+
+    files = dir.listFiles();
+    if (files == null)
+      return;
+    for (File file: files) {
+      if (file.isDirectory())
+	add(file, prefix + file.getName() + "/", index);
+      else if (isClass(file.getName()))
+	add(toClassname(prefix + file.getName()), index);
+    }
+  }
+
+  /**
+   * Checks whether the path represents a class file.
+   *
+   * @param path	the path to check
+   * @return		true if a class
+   */
+  protected static boolean isClass(String path) {
+    return path.endsWith(".class")
+      && !path.endsWith("package-info.class")
+      && !path.endsWith("module-info.class")
+      && !path.startsWith("META-INF/");
+  }
+
+  /**
+   * Turns the path of a class file into a class name.
+   *
+   * @param path	the path to convert
+   * @return		the class name
+   */
+  protected static String toClassname(String path) {
+    return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+  }
+
+  /**
+   * Returns the number of indexed classes.
+   *
+   * @return		the number of classes
+   */
+  public int size() {
+    return m_Locations.size();
+  }
+
+  /**
+   * Returns whether the class is available from the classpath.
+   *
+   * @param classname	the class to look up
+   * @return		true if available
+   */
+  public boolean contains(String classname) {
+    return m_Locations.containsKey(classname);
+  }
+
+  /**
+   * Returns the jar or directory that holds the class.
+   *
+   * @param classname	the class to look up
+   * @return		the absolute path of the classpath element, null if not on the classpath
+   */
+  public String getLocation(String classname) {
+    Integer	index;
+
+    index = m_Locations.get(classname);
+    if (index == null)
+      return null;
+    else
+      return m_Elements.get(index);
+  }
+
+  /**
+   * Returns the name of the jar entry or the file (relative to the
+   * classpath directory) that holds the class.
+   *
+   * @param classname	the class to get the entry for
+   * @return		the entry
+   */
+  public String getEntry(String classname) {
+    return classname.replace('.', '/') + ".class";
+  }
+
+  /**
+   * Returns all the top-level classes on the classpath.
+   *
+   * @return		the class names
+   */
+  public List<String> classnames() {
+    List<String>	result;
+
+    result = new ArrayList<>();
+    for (String classname: m_Locations.keySet()) {
+      if (!classname.contains("$"))
+	result.add(classname);
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks whether the class is provided by the JDK itself rather than the
+   * classpath.
+   *
+   * @param classname	the class to check
+   * @return		true if a JDK class
+   */
+  public static boolean isPlatformClass(String classname) {
+    ClassLoader	loader;
+
+    loader = ClassLoader.getSystemClassLoader().getParent();
+    return (loader != null) && (loader.getResource(classname.replace('.', '/') + ".class") != null);
+  }
+
+  /**
+   * Checks whether the index is still up-to-date for the classpath, i.e.,
+   * whether it consists of the same elements and none of the jars got
+   * modified. Directories are scanned when loading and are therefore
+   * always up-to-date, unless they got replaced by a jar (or vice versa).
+   *
+   * @param classpath	the classpath to check against
+   * @return		true if up-to-date
+   */
+  public boolean isUpToDate(String classpath) {
+    File	file;
+    int		i;
+
+    if (!elements(classpath).equals(m_Elements))
+      return false;
+    for (i = 0; i < m_Elements.size(); i++) {
+      file = new File(m_Elements.get(i));
+      if (file.isDirectory() != (m_Classes.get(i) == null))
+	return false;
+      if ((m_Classes.get(i) != null) && (file.lastModified() != m_Timestamps.get(i)))
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes the index to the file. For each classpath element, the path,
+   * timestamp and number of classes (-1 for directories) get stored,
+   * followed by the classes of jars.
+   *
+   * @param file	the file to write to
+   * @throws IOException	if writing fails
+   */
+  public void save(File file) throws IOException {
+    DataOutputStream	out;
+    int			i;
+
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(m_Elements.size());
+      for (i = 0; i < m_Elements.size(); i++) {
+	out.writeUTF(m_Elements.get(i));
+	out.writeLong(m_Timestamps.get(i));
+	if (m_Classes.get(i) == null) {
+	  out.writeInt(-1);
+	}
+	else {
+	  out.writeInt(m_Classes.get(i).size());
+	  for (String classname: m_Classes.get(i))
+	    out.writeUTF(classname);
+	}
+      }
+      out.flush();
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads a previously saved index from the file, scanning the directories
+   * on the classpath again.
+   *
+   * @param file	the file to read from
+   * @return		the index
+   * @throws IOException	if reading fails or the file is not an index
+   */
+  public static ClassPathIndex load(File file) throws IOException {
+    ClassPathIndex	result;
+    DataInputStream	in;
+    String		element;
+    long		timestamp;
+    List<String>	classes;
+    int			num;
+    int			numClasses;
+    int			i;
+    int			n;
+
+    result = new ClassPathIndex();
+    in     = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC)
+	throw new IOException("Not a classpath index: " + file);
+      if (in.readInt() != VERSION)
+	throw new IOException("Unsupported classpath index version: " + file);
+      num = in.readInt();
+      for (i = 0; i < num; i++) {
+	element    = in.readUTF();
+	timestamp  = in.readLong();
+	numClasses = in.readInt();
+	classes    = null;
+	if (numClasses >= 0) {
+	  classes = new ArrayList<>(numClasses);
+	  for (n = 0; n < numClasses; n++)
+	    classes.add(in.readUTF());
+	}
+	if ((classes == null) && !new File(element).isDirectory())
+	  throw new IOException("Classpath directory has been replaced: " + element);
+	result.addElement(element, timestamp, classes);
+      }
+    }
+    finally {
+      in.close();
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the index for the classpath, either loading it from the file (if
+   * up-to-date) or building it and saving it to the file.
+   *
+   * @param classpath	the classpath to index
+   * @param file	the file to persist the index in, can be null
+   * @return		the index
+   * @throws IOException	if building or saving the index fails
+   */
+  public static ClassPathIndex get(String classpath, File file) throws IOException {
+    ClassPathIndex	result;
+
+    if ((file != null) && file.isFile()) {
+      try {
+	result = load(file);
+	if (result.isUpToDate(classpath))
+	  return result;
+      }
+      catch (IOException e) {
+	// rebuilt below
+      }
+    }
+
+    result = new ClassPathIndex(classpath);
+    if (file != null)
+      result.save(file);
+
+    return result;
+  }
+}
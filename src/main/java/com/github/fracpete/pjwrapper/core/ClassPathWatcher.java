@@ -0,0 +1,353 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ClassPathWatcher.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Watches the directories and jars of a classpath and determines which of
+ * the classes of interest have changed. Directories and jars use the same
+ * binary class names (e.g., "java.util.AbstractMap$SimpleEntry"). A change
+ * to a nested class also reports its top-level class, and a class that got
+ * removed counts as a change.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ClassPathWatcher
+  implements Closeable {
+
+  /** the classes to monitor. */
+  protected Set<String> m_Classes;
+
+  /** the debounce time in msec. */
+  protected long m_Debounce;
+
+  /** the watch service. */
+  protected WatchService m_Service;
+
+  /** the watched directories. */
+  protected Map<WatchKey,Path> m_Keys;
+
+  /** the classpath directories each watched directory belongs to. */
+  protected Map<Path,Path> m_Roots;
+
+  /** the jars of the classpath. */
+  protected Set<Path> m_Jars;
+
+  /** the CRCs of the monitored classes and their nested classes in the jars (jar -> class -> CRC). */
+  protected Map<Path,Map<String,Long>> m_Checksums;
+
+  /**
+   * Initializes the watcher.
+   *
+   * @param classpath	the classpath to watch
+   * @param classes	the classes to monitor
+   * @param debounce	the time in msec to wait for further events before reporting changes
+   * @throws IOException	if registering the directories fails
+   */
+  public ClassPathWatcher(String classpath, Collection<String> classes, long debounce) throws IOException {
+    Path		path;
+    Map<String,Long>	checksums;
+
+    m_Classes   = new HashSet<>(classes);
+    m_Debounce  = debounce;
+    m_Service   = FileSystems.getDefault().newWatchService();
+    m_Keys      = new HashMap<>();
+    m_Roots     = new HashMap<>();
+    m_Jars      = new HashSet<>();
+    m_Checksums = new HashMap<>();
+
+    for (String element: ClassPathIndex.elements(classpath)) {
+      path = new File(element).toPath().normalize();
+      if (Files.isDirectory(path)) {
+	registerAll(path, path);
+      }
+      else if (path.getParent() != null) {
+	m_Jars.add(path);
+	checksums = Files.isRegularFile(path) ? checksums(path) : null;
+	m_Checksums.put(path, (checksums == null) ? new HashMap<>() : checksums);
+	if (!m_Keys.containsValue(path.getParent()))
+	  register(path.getParent(), null);
+      }
+    }
+  }
+
+  /**
+   * Registers the directory with the watch service.
+   *
+   * @param dir		the directory to watch
+   * @param root	the classpath directory it belongs to, null if watched for jars
+   * @throws IOException	if registering fails
+   */
+  protected void register(Path dir, Path root) throws IOException {
+    WatchKey	key;
+
+    key = dir.register(
+      m_Service,
+      StandardWatchEventKinds.ENTRY_CREATE,
+      StandardWatchEventKinds.ENTRY_MODIFY,
+      StandardWatchEventKinds.ENTRY_DELETE);
+    m_Keys.put(key, dir);
+    if (root != null)
+      m_Roots.put(dir, root);
+  }
+
+  /**
+   * Registers the directory and all its sub-directories.
+   *
+   * @param dir		the directory to register
+   * @param root	the classpath directory it belongs to
+   * @throws IOException	if registering fails
+   */
+  protected void registerAll(Path dir, Path root) throws IOException {
+    Stream<Path>	dirs;
+
+    dirs = Files.walk(dir);
+    try {
+      for (Path sub: (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator)
+	register(sub, root);
+    }
+    finally {
+      dirs.close();
+    }
+  }
+
+  /**
+   * Returns the top-level class of the (binary) class name.
+   *
+   * @param classname	the class name
+   * @return		the top-level class, the class name itself if not nested
+   */
+  protected static String topLevel(String classname) {
+    if (classname.contains("$"))
+      return classname.substring(0, classname.indexOf('$'));
+    else
+      return classname;
+  }
+
+  /**
+   * Checks whether the class or its top-level class is monitored.
+   *
+   * @param classname	the (binary) class name to check
+   * @return		true if monitored
+   */
+  protected boolean isMonitored(String classname) {
+    return m_Classes.contains(classname) || m_Classes.contains(topLevel(classname));
+  }
+
+  /**
+   * Records the change of the class, i.e., the class itself and its
+   * top-level class, if monitored.
+   *
+   * @param classname	the (binary) class name that changed
+   * @param changed	for storing the changed classes
+   */
+  protected void addChanged(String classname, Set<String> changed) {
+    if (m_Classes.contains(classname))
+      changed.add(classname);
+    if (m_Classes.contains(topLevel(classname)))
+      changed.add(topLevel(classname));
+  }
+
+  /**
+   * Determines the CRCs of the monitored classes (and their nested classes)
+   * stored in the jar.
+   *
+   * @param jar		the jar to inspect
+   * @return		the CRCs (class -> CRC), null if the jar is currently not readable
+   */
+  protected Map<String,Long> checksums(Path jar) {
+    Map<String,Long>			result;
+    ZipFile				zip;
+    Enumeration<? extends ZipEntry>	entries;
+    ZipEntry				entry;
+    String				classname;
+
+    result = new HashMap<>();
+    try {
+      zip = new ZipFile(jar.toFile());
+      try {
+	entries = zip.entries();
+	while (entries.hasMoreElements()) {
+	  entry = entries.nextElement();
+	  if (!ClassPathIndex.isClass(entry.getName()))
+	    continue;
+	  classname = ClassPathIndex.toClassname(entry.getName());
+	  if (isMonitored(classname))
+	    result.put(classname, entry.getCrc());
+	}
+      }
+      finally {
+	zip.close();
+      }
+    }
+    catch (IOException e) {
+      // jar is probably still being written, picked up by the next event
+      return null;
+    }
+
+    return result;
+  }
+
+  /**
+   * Turns the path of a changed class file into the binary class name, the
+   * same way as for the classes in jars.
+   *
+   * @param root	the classpath directory
+   * @param file	the class file
+   * @return		the class name, null if not a class file
+   */
+  protected String toClassname(Path root, Path file) {
+    String	path;
+
+    path = root.relativize(file).toString().replace(File.separatorChar, '/');
+    if (!ClassPathIndex.isClass(path))
+      return null;
+
+    return ClassPathIndex.toClassname(path);
+  }
+
+  /**
+   * Processes the events of the watch key and records the changed classes.
+   *
+   * @param key		the key to process
+   * @param changed	for storing the changed classes
+   * @param jars	for storing the jars that were touched
+   * @return		false if events were lost and everything should be regenerated
+   * @throws IOException	if registering new directories fails
+   */
+  protected boolean process(WatchKey key, Set<String> changed, Set<Path> jars) throws IOException {
+    Path	dir;
+    Path	root;
+    Path	file;
+    String	classname;
+    boolean	result;
+
+    result = true;
+    dir    = m_Keys.get(key);
+    root   = m_Roots.get(dir);
+
+    for (WatchEvent<?> event: key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+	result = false;
+	continue;
+      }
+      file = dir.resolve((Path) event.context());
+      if (m_Jars.contains(file))
+	jars.add(file);
+      if (root == null)
+	continue;
+      if ((event.kind() == StandardWatchEventKinds.ENTRY_CREATE) && Files.isDirectory(file)) {
+	registerAll(file, root);
+	continue;
+      }
+      classname = toClassname(root, file);
+      if (classname != null)
+	addChanged(classname, changed);
+    }
+
+    if (!key.reset()) {
+      m_Keys.remove(key);
+      m_Roots.remove(dir);
+    }
+
+    return result;
+  }
+
+  /**
+   * Blocks until at least one of the monitored classes has changed. Bursts
+   * of events are collected until no further event arrives within the
+   * debounce time.
+   *
+   * @return		the changed classes
+   * @throws IOException	if processing of events fails
+   * @throws InterruptedException	if interrupted while waiting
+   */
+  public Set<String> waitForChanges() throws IOException, InterruptedException {
+    Set<String>		result;
+    Set<Path>		jars;
+    WatchKey		key;
+    boolean		complete;
+    Map<String,Long>	current;
+    Map<String,Long>	previous;
+
+    result = new LinkedHashSet<>();
+    while (result.isEmpty()) {
+      jars     = new HashSet<>();
+      complete = process(m_Service.take(), result, jars);
+      while ((key = m_Service.poll(m_Debounce, TimeUnit.MILLISECONDS)) != null)
+	complete = process(key, result, jars) && complete;
+
+      if (!complete) {
+	jars.addAll(m_Jars);
+	result.addAll(m_Classes);
+      }
+
+      for (Path jar: jars) {
+	previous = m_Checksums.get(jar);
+	// a removed jar no longer provides any classes
+	current  = Files.isRegularFile(jar) ? checksums(jar) : new HashMap<>();
+	if (current == null)
+	  continue;
+	for (String classname: current.keySet()) {
+	  if (!current.get(classname).equals(previous.get(classname)))
+	    addChanged(classname, result);
+	}
+	for (String classname: previous.keySet()) {
+	  if (!current.containsKey(classname))
+	    addChanged(classname, result);
+	}
+	m_Checksums.put(jar, current);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Stops watching.
+   *
+   * @throws IOException	if closing the watch service fails
+   */
+  public void close() throws IOException {
+    m_Service.close();
+  }
+}
@@ -0,0 +1,474 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DescriptorIndex.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact binary index of class descriptors. The file is memory-mapped when
+ * loaded and descriptors are only decoded when requested.
+ * <br>
+ * Layout (all integers are big-endian):
+ * <pre>
+ * header:     magic, version, skip pattern (-1 if none), #strings, #classes
+ * strings:    #strings offsets (relative to string data), then per string: length + UTF-8 bytes
+ * directory:  #classes entries of (name string index, offset of record), sorted by name
+ * records:    name, flags, #methods, methods, #properties, properties
+ * method:     name, flags, raw signature, return type (-1 for void), #args, args
+ * property:   name, index of read method, index of write method
+ * </pre>
+ * All names and types are stored as indices into the de-duplicated string table.
+ * The skip pattern that was used for parsing the classes is stored as well,
+ * as the descriptors are only valid for that pattern.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DescriptorIndex {
+
+  /** the magic number ("PJWI"). */
+  public static final int MAGIC = 0x504A5749;
+
+  /** the format version. */
+  public static final int VERSION = 3;
+
+  /** the size of the header in bytes. */
+  protected static final int HEADER = 20;
+
+  /** the flag for constructors. */
+  protected static final int FLAG_CONSTRUCTOR = 1;
+
+  /** the flag for static methods. */
+  protected static final int FLAG_STATIC = 2;
+
+  /** the flag for property methods. */
+  protected static final int FLAG_PROPERTY = 4;
+
+  /** the flag for serializable classes. */
+  protected static final int FLAG_SERIALIZABLE = 1;
+
+  /** the index file. */
+  protected File m_File;
+
+  /** the mapped file content. */
+  protected MappedByteBuffer m_Buffer;
+
+  /** the number of strings. */
+  protected int m_NumStrings;
+
+  /** the number of classes. */
+  protected int m_NumClasses;
+
+  /** the start of the string offsets. */
+  protected int m_StringOffsets;
+
+  /** the start of the string data. */
+  protected int m_StringData;
+
+  /** the start of the class directory. */
+  protected int m_Directory;
+
+  /** the decoded strings (lazily filled). */
+  protected String[] m_Strings;
+
+  /** the skip pattern the index was built with, null if none. */
+  protected String m_Skip;
+
+  /**
+   * Loads the index from the specified file.
+   *
+   * @param file	the index file
+   * @throws IOException	if mapping fails or the file is not a valid index
+   */
+  public DescriptorIndex(File file) throws IOException {
+    RandomAccessFile	raf;
+    FileChannel		channel;
+
+    m_File = file;
+    raf    = new RandomAccessFile(file, "r");
+    try {
+      channel  = raf.getChannel();
+      m_Buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    finally {
+      raf.close();
+    }
+
+    if ((m_Buffer.limit() < 8) || (m_Buffer.getInt(0) != MAGIC))
+      throw new IOException("Not a descriptor index: " + file);
+    if (m_Buffer.getInt(4) != VERSION)
+      throw new IOException("Unsupported descriptor index version " + m_Buffer.getInt(4) + ": " + file);
+    if (m_Buffer.limit() < HEADER)
+      throw new IOException("Truncated descriptor index: " + file);
+
+    m_NumStrings = m_Buffer.getInt(12);
+    m_NumClasses = m_Buffer.getInt(16);
+    // validate the counts against the file size before allocating anything
+    if ((m_NumStrings < 0) || (m_NumClasses < 0) || (HEADER + 4L * m_NumStrings > m_Buffer.limit()))
+      throw new IOException("Truncated descriptor index: " + file);
+    m_StringOffsets = HEADER;
+    m_StringData    = m_StringOffsets + 4 * m_NumStrings;
+    m_Strings       = new String[m_NumStrings];
+    try {
+      locateDirectory();
+      if ((long) m_Directory + 8L * m_NumClasses > m_Buffer.limit())
+	throw new IOException("Truncated descriptor index: " + file);
+      m_Skip = string(m_Buffer.getInt(8));
+    }
+    catch (IndexOutOfBoundsException e) {
+      throw new IOException("Truncated descriptor index: " + file, e);
+    }
+  }
+
+  /**
+   * Determines the start of the class directory, which immediately follows
+   * the string data.
+   *
+   * @throws IndexOutOfBoundsException	if the last string lies outside the file
+   */
+  protected void locateDirectory() {
+    if (m_NumStrings == 0)
+      m_Directory = m_StringData;
+    else
+      m_Directory = (int) end(m_StringData + (long) m_Buffer.getInt(m_StringOffsets + 4 * (m_NumStrings - 1)));
+  }
+
+  /**
+   * Returns the end of the string stored at the position, i.e., after the
+   * length and the UTF-8 bytes.
+   *
+   * @param pos		the position of the string
+   * @return		the end of the string
+   * @throws IndexOutOfBoundsException	if the string lies outside the file
+   */
+  protected long end(long pos) {
+    long	result;
+
+    if ((pos < m_StringData) || (pos + 4 > m_Buffer.limit()))
+      throw new IndexOutOfBoundsException("Invalid string position: " + pos);
+    result = pos + 4 + m_Buffer.getInt((int) pos);
+    if ((result < pos + 4) || (result > m_Buffer.limit()))
+      throw new IndexOutOfBoundsException("Invalid string length at position: " + pos);
+
+    return result;
+  }
+
+  /**
+   * Returns the file this index was loaded from.
+   *
+   * @return		the file
+   */
+  public File getFile() {
+    return m_File;
+  }
+
+  /**
+   * Returns the skip pattern for method names the index was built with.
+   *
+   * @return		the pattern, null if none
+   */
+  public String getSkip() {
+    return m_Skip;
+  }
+
+  /**
+   * Returns the number of classes in the index.
+   *
+   * @return		the number of classes
+   */
+  public int size() {
+    return m_NumClasses;
+  }
+
+  /**
+   * Returns the string at the specified position in the string table.
+   *
+   * @param index	the index of the string, -1 for null
+   * @return		the string
+   */
+  protected String string(int index) {
+    int		pos;
+    byte[]	data;
+    int		i;
+
+    if (index < 0)
+      return null;
+    if (m_Strings[index] == null) {
+      pos  = m_StringData + m_Buffer.getInt(m_StringOffsets + 4 * index);
+      data = new byte[(int) (end(pos) - pos - 4)];
+      for (i = 0; i < data.length; i++)
+	data[i] = m_Buffer.get(pos + 4 + i);
+      m_Strings[index] = new String(data, StandardCharsets.UTF_8);
+    }
+    return m_Strings[index];
+  }
+
+  /**
+   * Returns the class name stored at the specified directory position.
+   *
+   * @param index	the position in the directory
+   * @return		the class name
+   */
+  public String classname(int index) {
+    return string(m_Buffer.getInt(m_Directory + 8 * index));
+  }
+
+  /**
+   * Returns all the class names stored in the index.
+   *
+   * @return		the class names, sorted
+   */
+  public List<String> classnames() {
+    List<String>	result;
+    int			i;
+
+    result = new ArrayList<>();
+    for (i = 0; i < m_NumClasses; i++)
+      result.add(classname(i));
+
+    return result;
+  }
+
+  /**
+   * Returns the descriptor for the specified class.
+   *
+   * @param classname	the class to look up
+   * @return		the descriptor, null if not in the index
+   */
+  public synchronized ClassDescriptor get(String classname) {
+    int		low;
+    int		high;
+    int		mid;
+    int		cmp;
+
+    low  = 0;
+    high = m_NumClasses - 1;
+    while (low <= high) {
+      mid = (low + high) >>> 1;
+      cmp = classname(mid).compareTo(classname);
+      if (cmp < 0)
+	low = mid + 1;
+      else if (cmp > 0)
+	high = mid - 1;
+      else
+	return read(m_Buffer.getInt(m_Directory + 8 * mid + 4));
+    }
+
+    return null;
+  }
+
+  /**
+   * Decodes the class record at the specified offset.
+   *
+   * @param pos		the offset of the record
+   * @return		the descriptor
+   */
+  protected ClassDescriptor read(int pos) {
+    ClassDescriptor	result;
+    MethodDescriptor	method;
+    PropertyDescriptor	property;
+    int			num;
+    int			numArgs;
+    int			flags;
+    int			i;
+    int			n;
+
+    result                = new ClassDescriptor();
+    result.name           = string(m_Buffer.getInt(pos));
+    result.isSerializable = (m_Buffer.get(pos + 4) & FLAG_SERIALIZABLE) != 0;
+    pos += 5;
+
+    num = m_Buffer.getInt(pos);
+    pos += 4;
+    for (i = 0; i < num; i++) {
+      method      = new MethodDescriptor();
+      method.name = string(m_Buffer.getInt(pos));
+      flags       = m_Buffer.get(pos + 4);
+      method.isConstructor = (flags & FLAG_CONSTRUCTOR) != 0;
+      method.isStatic      = (flags & FLAG_STATIC) != 0;
+      method.isProperty    = (flags & FLAG_PROPERTY) != 0;
+      method.signature            = new SignatureDescriptor();
+      method.signature.raw        = string(m_Buffer.getInt(pos + 5));
+      method.signature.returnType = string(m_Buffer.getInt(pos + 9));
+      numArgs = m_Buffer.getInt(pos + 13);
+      pos += 17;
+      for (n = 0; n < numArgs; n++) {
+	method.signature.argTypes.add(string(m_Buffer.getInt(pos)));
+	pos += 4;
+      }
+      result.methods.add(method);
+    }
+
+    num = m_Buffer.getInt(pos);
+    pos += 4;
+    for (i = 0; i < num; i++) {
+      property       = new PropertyDescriptor();
+      property.name  = string(m_Buffer.getInt(pos));
+      property.read  = result.methods.get(m_Buffer.getInt(pos + 4));
+      property.write = result.methods.get(m_Buffer.getInt(pos + 8));
+      result.properties.add(property);
+      pos += 12;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the index of the string in the table, adding it if necessary.
+   *
+   * @param table	the string table
+   * @param s		the string, can be null
+   * @return		the index, -1 for null
+   */
+  protected static int intern(Map<String,Integer> table, String s) {
+    Integer	result;
+
+    if (s == null)
+      return -1;
+    result = table.get(s);
+    if (result == null) {
+      result = table.size();
+      table.put(s, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Writes the descriptors to the specified index file.
+   *
+   * @param file	the file to write to
+   * @param classes	the descriptors to store
+   * @param skip	the skip pattern for method names used for parsing, null if none
+   * @throws IOException	if writing fails
+   */
+  public static void write(File file, Collection<ClassDescriptor> classes, String skip) throws IOException {
+    Map<String,Integer>			table;
+    TreeMap<String,ClassDescriptor>	sorted;
+    Map<String,Integer>			offsets;
+    ByteArrayOutputStream		records;
+    DataOutputStream			rec;
+    ByteArrayOutputStream		strings;
+    DataOutputStream			str;
+    DataOutputStream			out;
+    List<String>			list;
+    int[]				stringOffsets;
+    byte[]				data;
+    int					flags;
+    int					i;
+    int					dirStart;
+    int					recStart;
+    int					skipIndex;
+
+    sorted = new TreeMap<>();
+    for (ClassDescriptor cls: classes)
+      sorted.put(cls.name, cls);
+
+    // records
+    table   = new HashMap<>();
+    offsets = new HashMap<>();
+    records = new ByteArrayOutputStream();
+    rec     = new DataOutputStream(records);
+    for (ClassDescriptor cls: sorted.values()) {
+      offsets.put(cls.name, rec.size());
+      rec.writeInt(intern(table, cls.name));
+      rec.writeByte(cls.isSerializable ? FLAG_SERIALIZABLE : 0);
+      rec.writeInt(cls.methods.size());
+      for (MethodDescriptor method: cls.methods) {
+	flags = 0;
+	if (method.isConstructor)
+	  flags |= FLAG_CONSTRUCTOR;
+	if (method.isStatic)
+	  flags |= FLAG_STATIC;
+	if (method.isProperty)
+	  flags |= FLAG_PROPERTY;
+	rec.writeInt(intern(table, method.name));
+	rec.writeByte(flags);
+	rec.writeInt(intern(table, method.signature.raw));
+	rec.writeInt(intern(table, method.signature.returnType));
+	rec.writeInt(method.signature.argTypes.size());
+	for (String arg: method.signature.argTypes)
+	  rec.writeInt(intern(table, arg));
+      }
+      rec.writeInt(cls.properties.size());
+      for (PropertyDescriptor property: cls.properties) {
+	rec.writeInt(intern(table, property.name));
+	rec.writeInt(cls.methods.indexOf(property.read));
+	rec.writeInt(cls.methods.indexOf(property.write));
+      }
+    }
+    rec.flush();
+    skipIndex = intern(table, skip);
+
+    // string table
+    list = new ArrayList<>(table.keySet());
+    for (String s: table.keySet())
+      list.set(table.get(s), s);
+    stringOffsets = new int[list.size()];
+    strings       = new ByteArrayOutputStream();
+    str           = new DataOutputStream(strings);
+    for (i = 0; i < list.size(); i++) {
+      stringOffsets[i] = str.size();
+      data = list.get(i).getBytes(StandardCharsets.UTF_8);
+      str.writeInt(data.length);
+      str.write(data);
+    }
+    str.flush();
+
+    dirStart = HEADER + 4 * stringOffsets.length + strings.size();
+    recStart = dirStart + 8 * sorted.size();
+
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(skipIndex);
+      out.writeInt(stringOffsets.length);
+      out.writeInt(sorted.size());
+      for (int offset: stringOffsets)
+	out.writeInt(offset);
+      strings.writeTo(out);
+      for (String name: sorted.keySet()) {
+	out.writeInt(table.get(name));
+	out.writeInt(recStart + offsets.get(name));
+      }
+      records.writeTo(out);
+      out.flush();
+    }
+    finally {
+      out.close();
+    }
+  }
+}
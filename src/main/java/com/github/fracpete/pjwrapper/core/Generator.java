@@ -20,15 +20,47 @@
 
 package com.github.fracpete.pjwrapper.core;
 
+import com.github.fracpete.pjwrapper.backend.AbstractBackend;
+import com.github.fracpete.pjwrapper.backend.Conversion;
+import com.github.fracpete.pjwrapper.backend.JavabridgeBackend;
+import com.github.fracpete.pjwrapper.backend.PWWBackend;
+import com.github.fracpete.pjwrapper.backend.Slot;
+import com.github.fracpete.pjwrapper.backend.Template;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
- * Generates Python code from a parsed class descriptor.
+ * Generates Python code from a parsed class descriptor, using the
+ * precompiled templates of a backend.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
 public class Generator {
 
-  /** whether to generate python-weka-wrapper code. */
-  protected boolean m_PWW;
+  /** the Python keywords that cannot be used as method names. */
+  public static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+    "False", "None", "True", "and", "as", "assert", "async", "await", "break",
+    "class", "continue", "def", "del", "elif", "else", "except", "finally",
+    "for", "from", "global", "if", "import", "in", "is", "lambda", "nonlocal",
+    "not", "or", "pass", "raise", "return", "try", "while", "with", "yield"));
+
+  /** the boxed primitive types. */
+  public static final Set<String> BOXED = new HashSet<>(Arrays.asList(
+    "java/lang/Boolean", "java/lang/Byte", "java/lang/Character", "java/lang/Short",
+    "java/lang/Integer", "java/lang/Long", "java/lang/Float", "java/lang/Double"));
+
+  /** the backend to use. */
+  protected AbstractBackend m_Backend;
+
+  /** the classes that get wrapped (null if not known in advance). */
+  protected Set<String> m_Wrapped;
+
+  /** whether to generate pickling support for serializable classes. */
+  protected boolean m_Pickle;
 
   /**
    * Initializes the generator.
@@ -36,11 +68,70 @@ public class Generator {
    * @param pww		whether to generate python-weka-wrapper code
    */
   public Generator(boolean pww) {
-    m_PWW = pww;
+    this(pww ? new PWWBackend() : new JavabridgeBackend());
+  }
+
+  /**
+   * Initializes the generator.
+   *
+   * @param backend	the backend to use
+   */
+  public Generator(AbstractBackend backend) {
+    m_Backend = backend;
+    m_Wrapped = null;
+    m_Pickle  = false;
+  }
+
+  /**
+   * Returns the backend in use.
+   *
+   * @return		the backend
+   */
+  public AbstractBackend getBackend() {
+    return m_Backend;
+  }
+
+  /**
+   * Sets the classes that get wrapped. Objects of these classes are
+   * converted from/to their wrappers, any other objects are passed on as is.
+   * If not known in advance, all objects go through the wrapper registry.
+   *
+   * @param value	the classes, null if not known
+   */
+  public void setWrapped(Set<String> value) {
+    m_Wrapped = value;
+  }
+
+  /**
+   * Returns the classes that get wrapped.
+   *
+   * @return		the classes, null if not known
+   */
+  public Set<String> getWrapped() {
+    return m_Wrapped;
+  }
+
+  /**
+   * Sets whether to generate pickling support for serializable classes.
+   *
+   * @param value	true if to generate
+   */
+  public void setPickle(boolean value) {
+    m_Pickle = value;
   }
 
   /**
-   * Turns a Java camel case into a Python lower_underscore name.
+   * Returns whether to generate pickling support for serializable classes.
+   *
+   * @return		true if to generate
+   */
+  public boolean getPickle() {
+    return m_Pickle;
+  }
+
+  /**
+   * Turns a Java camel case into a Python lower_underscore name. Python
+   * keywords get an underscore appended.
    *
    * @param javaname	the name to convert
    * @return		the converted name
@@ -58,82 +149,303 @@ public class Generator {
         result.append("_");
         c = Character.toLowerCase(c);
       }
+      else if (c == '$') {
+        c = '_';
+      }
       result.append(c);
     }
 
+    if (KEYWORDS.contains(result.toString()))
+      result.append("_");
+
     return result.toString();
   }
 
   /**
-   * Generates code for the parsed class.
+   * Turns the Java method name into one that can be used in Python
+   * expressions, i.e., appends an underscore to Python keywords.
    *
-   * @param cls		the class to generate code for
-   * @param code	for storing the code
-   * @return		null if successful, otherwise error message
+   * @param javaname	the name to convert
+   * @return		the converted name
    */
-  public String generate(ClassDescriptor cls, StringBuilder code) {
-    // imports
-    if (m_PWW && (code.length() == 0)) {
-      code.append("from weka.core.classes import JavaObject\n");
-      code.append("\n");
-      code.append("\n");
+  protected String safeName(String javaname) {
+    if (KEYWORDS.contains(javaname))
+      return javaname + "_";
+    else
+      return javaname;
+  }
+
+  /**
+   * Returns the name of the type for telling overloaded methods apart,
+   * e.g., "int", "string" or "int_array".
+   *
+   * @param type	the type as stored in the signature
+   * @return		the name
+   */
+  protected String typeName(String type) {
+    StringBuilder	result;
+    int			dims;
+    int			i;
+
+    dims = 0;
+    while (type.charAt(dims) == '[')
+      dims++;
+    type = type.substring(dims);
+
+    result = new StringBuilder();
+    switch (type) {
+      case "Z":
+	result.append("boolean");
+	break;
+      case "B":
+	result.append("byte");
+	break;
+      case "C":
+	result.append("char");
+	break;
+      case "S":
+	result.append("short");
+	break;
+      case "I":
+	result.append("int");
+	break;
+      case "J":
+	result.append("long");
+	break;
+      case "F":
+	result.append("float");
+	break;
+      case "D":
+	result.append("double");
+	break;
+      default:
+	result.append(type.replaceAll(".*[/$]", "").toLowerCase());
     }
+    for (i = 0; i < dims; i++)
+      result.append("_array");
 
-    // class
-    code.append("class ").append(cls.name.replaceAll(".*\\.", ""));
-    if (m_PWW)
-      code.append("(JavaObject):\n");
+    return result.toString();
+  }
+
+  /**
+   * Determines the Python names of the methods (apart from the property
+   * ones). Constructors are called "new". Overloaded names get the types
+   * of the arguments appended, e.g., "new_string" and "new_int".
+   *
+   * @param cls		the class to determine the names for
+   * @return		the names
+   */
+  protected Map<MethodDescriptor,String> pythonNames(ClassDescriptor cls) {
+    Map<MethodDescriptor,String>	result;
+    Map<String,Integer>			counts;
+    Set<String>				used;
+    String				base;
+    StringBuilder			name;
+    int					i;
+
+    counts = new HashMap<>();
+    for (MethodDescriptor method: cls.methods) {
+      if (method.isProperty)
+	continue;
+      base = method.isConstructor ? "new" : pythonName(method.name);
+      counts.put(base, counts.getOrDefault(base, 0) + 1);
+    }
+
+    result = new HashMap<>();
+    used   = new HashSet<>();
+    for (MethodDescriptor method: cls.methods) {
+      if (method.isProperty)
+	continue;
+      base = method.isConstructor ? "new" : pythonName(method.name);
+      name = new StringBuilder(base);
+      if ((counts.get(base) > 1) && (method.signature.argTypes.size() > 0)) {
+	// no need for the underscore of keywords anymore
+	if (base.endsWith("_") && KEYWORDS.contains(base.substring(0, base.length() - 1)))
+	  name.setLength(base.length() - 1);
+	for (String type: method.signature.argTypes)
+	  name.append("_").append(typeName(type));
+      }
+      // e.g., types with the same name in different packages
+      if (used.contains(name.toString())) {
+	i = 2;
+	while (used.contains(name + "_" + i))
+	  i++;
+	name.append("_").append(i);
+      }
+      used.add(name.toString());
+      result.put(method, name.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Determines the kind of conversion that the type requires.
+   *
+   * @param type	the type as stored in the signature
+   * @return		the conversion
+   */
+  protected Conversion conversion(String type) {
+    if (type.startsWith("["))
+      return Conversion.OBJECT;
+    if (type.length() == 1)
+      return Conversion.PRIMITIVE;
+    if (type.equals("java/lang/String"))
+      return Conversion.STRING;
+    if (BOXED.contains(type))
+      return Conversion.BOXED;
+    if ((m_Wrapped == null) || m_Wrapped.contains(type.replace('/', '.')))
+      return Conversion.WRAPPED;
+    return Conversion.OBJECT;
+  }
+
+  /**
+   * Returns the expression that converts the Python variable for passing
+   * it on to Java.
+   *
+   * @param type	the type of the argument
+   * @param name	the name of the variable
+   * @return		the expression
+   */
+  protected String toJava(String type, String name) {
+    String	prefix;
+
+    prefix = m_Backend.toJava(conversion(type), type);
+    if (prefix.isEmpty())
+      return name;
     else
-      code.append("(Object):\n");
-
-    // comments
-    code.append("    \"\"\"\n");
-    code.append("    classname: " + cls.name + "\n");
-    code.append("    \"\"\"\n");
-    code.append("    \n");
-
-    // constructor
-    if (m_PWW) {
-      code.append("    def __init__(self, jobject):\n");
-      code.append("        super(JavaObject, jobject)\n");
-      code.append("        \n");
+      return prefix + name + ")";
+  }
+
+  /**
+   * Fills in the return slots for the result type.
+   *
+   * @param type	the return type, null for void
+   * @param values	the slot values to update
+   */
+  protected void fillReturn(String type, String[] values) {
+    String	prefix;
+
+    if (type == null) {
+      values[Slot.RETURN.ordinal()]    = "";
+      values[Slot.RETURNEND.ordinal()] = "";
     }
     else {
-      code.append("    def __init__(self, jobject):\n");
-      code.append("        self.jobject = jobject\n");
-      code.append("        \n");
+      prefix = m_Backend.fromJava(conversion(type), type);
+      values[Slot.RETURN.ordinal()]    = "return " + prefix;
+      values[Slot.RETURNEND.ordinal()] = prefix.isEmpty() ? "" : ")";
+    }
+  }
+
+  /**
+   * Fills in the method slots.
+   *
+   * @param method	the method to use
+   * @param pyname	the Python name of the method
+   * @param values	the slot values to update
+   */
+  protected void fillMethod(MethodDescriptor method, String pyname, String[] values) {
+    StringBuilder	params;
+    StringBuilder	args;
+    StringBuilder	converted;
+    int			i;
+
+    params    = new StringBuilder();
+    args      = new StringBuilder();
+    converted = new StringBuilder();
+    for (i = 0; i < method.signature.argTypes.size(); i++) {
+      if (i > 0)
+	args.append(", ");
+      args.append("arg").append(i);
+      params.append(", arg").append(i);
+      converted.append(", ").append(toJava(method.signature.argTypes.get(i), "arg" + i));
     }
 
+    values[Slot.METHOD.ordinal()]          = method.name;
+    values[Slot.SAFEMETHOD.ordinal()]      = safeName(method.name);
+    values[Slot.PYNAME.ordinal()]          = pyname;
+    values[Slot.SIGNATURE.ordinal()]       = String.valueOf(method.signature);
+    values[Slot.DESCRIPTOR.ordinal()]      = method.signature.raw;
+    values[Slot.PARAMS.ordinal()]          = params.toString();
+    values[Slot.ARGS.ordinal()]            = args.toString();
+    values[Slot.CONVERTEDPARAMS.ordinal()] = converted.toString();
+    values[Slot.CONVERTEDARGS.ordinal()]   = converted.length() > 0 ? converted.substring(2) : "";
+    fillReturn(method.signature.returnType, values);
+  }
+
+  /**
+   * Generates the module header, i.e., the imports.
+   *
+   * @param code	for storing the code
+   */
+  public void generateHeader(StringBuilder code) {
+    m_Backend.getHeader().emit(code, Template.newValues());
+    if (m_Pickle)
+      m_Backend.getPickleHeader().emit(code, Template.newValues());
+  }
+
+  /**
+   * Generates code for the parsed class. Outputs the module header as well
+   * if no code has been generated so far.
+   *
+   * @param cls		the class to generate code for
+   * @param code	for storing the code
+   * @return		null if successful, otherwise error message
+   */
+  public String generate(ClassDescriptor cls, StringBuilder code) {
+    if (code.length() == 0)
+      generateHeader(code);
+    return generateClass(cls, code);
+  }
+
+  /**
+   * Generates code for the parsed class, without any module header.
+   *
+   * @param cls		the class to generate code for
+   * @param code	for storing the code
+   * @return		null if successful, otherwise error message
+   */
+  public String generateClass(ClassDescriptor cls, StringBuilder code) {
+    String[]				values;
+    Map<MethodDescriptor,String>	names;
+
+    values = Template.newValues();
+    values[Slot.CLASSNAME.ordinal()]  = cls.name;
+    values[Slot.SIMPLENAME.ordinal()] = cls.name.replaceAll(".*\\.", "").replace('$', '_');
+    values[Slot.JNINAME.ordinal()]    = cls.name.replace('.', '/');
+
+    // class
+    m_Backend.getClassDefinition().emit(code, values);
+    if (m_Pickle && cls.isSerializable)
+      m_Backend.getPickle().emit(code, values);
+
     // iterate methods
+    names = pythonNames(cls);
     for (MethodDescriptor method: cls.methods) {
-      if (method.isConstructor || method.isProperty || method.isStatic)
+      if (method.isProperty)
         continue;
-
-      code.append("    def ").append(pythonName(method.name)).append("(self):\n");  // TODO parameters
-      code.append("        \"\"\"\n");
-      code.append("        method: ").append(method.name).append(method.signature).append("\n");
-      code.append("        \"\"\"\n");
-      code.append("        pass\n");  // TODO set
-      code.append("        \n");
+      fillMethod(method, names.get(method), values);
+      if (method.isConstructor)
+	m_Backend.getConstructor().emit(code, values);
+      else if (method.isStatic)
+	m_Backend.getStaticMethod().emit(code, values);
+      else
+	m_Backend.getMethod().emit(code, values);
     }
 
     // iterate properties
     for (PropertyDescriptor property: cls.properties) {
-      code.append("    @property\n");
-      code.append("    def ").append(pythonName(property.name)).append("(self):\n");
-      code.append("        \"\"\"\n");
-      code.append("        method: ").append(property.read.name).append(property.read.signature).append("\n");
-      code.append("        \"\"\"\n");
-      code.append("        return None\n");  // TODO return
-      code.append("        \n");
-
-      code.append("    @").append(pythonName(property.name)).append(".setter\n");
-      code.append("    def ").append(pythonName(property.name)).append("(self, value):\n");
-      code.append("        \"\"\"\n");
-      code.append("        method: ").append(property.write.name).append(property.write.signature).append("\n");
-      code.append("        \"\"\"\n");
-      code.append("        pass\n");  // TODO set
-      code.append("        \n");
+      values[Slot.PROPERTY.ordinal()]        = pythonName(property.name);
+      values[Slot.READ.ordinal()]            = property.read.name;
+      values[Slot.READSIGNATURE.ordinal()]   = String.valueOf(property.read.signature);
+      values[Slot.READDESCRIPTOR.ordinal()]  = property.read.signature.raw;
+      values[Slot.WRITE.ordinal()]           = property.write.name;
+      values[Slot.WRITESIGNATURE.ordinal()]  = String.valueOf(property.write.signature);
+      values[Slot.WRITEDESCRIPTOR.ordinal()] = property.write.signature.raw;
+      values[Slot.CONVERTEDARGS.ordinal()]   = toJava(property.write.signature.argTypes.get(0), "value");
+      values[Slot.CONVERTEDPARAMS.ordinal()] = ", " + values[Slot.CONVERTEDARGS.ordinal()];
+      fillReturn(property.read.signature.returnType, values);
+      m_Backend.getProperty().emit(code, values);
     }
 
     return null;
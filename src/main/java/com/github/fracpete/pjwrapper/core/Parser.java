@@ -20,29 +20,65 @@
 
 package com.github.fracpete.pjwrapper.core;
 
-import com.github.fracpete.processoutput4j.output.CollectingProcessOutput;
-
 import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
- * For parsing classes.
+ * For parsing classes, using the output of javap. Whether a class is
+ * serializable gets determined (if requested) by following the supertypes
+ * listed in the class declarations, which requires a javap call for each
+ * supertype that has not been encountered before.
+ * <br>
+ * A javap process that exceeds the timeout gets killed and the class is
+ * treated as failed. The number of concurrent javap processes and their
+ * heap can be limited. Slow and failed classes are recorded for the
+ * summary.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
-public class Parser {
+public class Parser
+  extends AbstractParser {
+
+  /** the name of the frontend. */
+  public static final String NAME = "javap";
 
   /** the javap executable. */
   protected File m_Javap;
 
-  /** the classpath. */
-  protected String m_Classpath;
+  /** whether classes are serializable (class -> serializable). */
+  protected Map<String,Boolean> m_Serializable;
+
+  /** the timeout in seconds for a javap process (0 = no timeout). */
+  protected int m_Timeout;
+
+  /** the maximum number of concurrent javap processes (0 = unlimited). */
+  protected int m_MaxProcesses;
+
+  /** for limiting the concurrent javap processes, null if unlimited. */
+  protected Semaphore m_Processes;
+
+  /** the maximum heap for javap (eg 256m), null for the JVM default. */
+  protected String m_MaxHeap;
 
-  /** the skip pattern. */
-  protected Pattern m_SkipPattern;
+  /** the time in msec from which on a javap call counts as slow. */
+  protected int m_SlowThreshold;
+
+  /** the slow classes (class -> msec). */
+  protected Map<String,Long> m_Slow;
+
+  /** the failed classes (class -> reason). */
+  protected Map<String,String> m_Failed;
 
   /**
    * Initializes the parser.
@@ -52,9 +88,354 @@ public class Parser {
    * @param skipPattern	the pattern for skipping methods
    */
   public Parser(File javap, String classpath, Pattern skipPattern) {
-    m_Javap       = javap;
-    m_Classpath   = classpath;
-    m_SkipPattern = skipPattern;
+    super(classpath, skipPattern);
+    m_Javap         = javap;
+    m_Serializable  = new ConcurrentHashMap<>();
+    m_Timeout       = 0;
+    m_MaxProcesses  = 0;
+    m_Processes     = null;
+    m_MaxHeap       = null;
+    m_SlowThreshold = 5000;
+    m_Slow          = new ConcurrentHashMap<>();
+    m_Failed        = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Sets the timeout for a javap process, after which it gets killed.
+   *
+   * @param value	the timeout in seconds, 0 for no timeout
+   */
+  public void setTimeout(int value) {
+    m_Timeout = value;
+  }
+
+  /**
+   * Returns the timeout for a javap process, after which it gets killed.
+   *
+   * @return		the timeout in seconds, 0 for no timeout
+   */
+  public int getTimeout() {
+    return m_Timeout;
+  }
+
+  /**
+   * Sets the maximum number of concurrent javap processes.
+   *
+   * @param value	the maximum, 0 for unlimited
+   */
+  public void setMaxProcesses(int value) {
+    m_MaxProcesses = value;
+    m_Processes    = (value > 0) ? new Semaphore(value, true) : null;
+  }
+
+  /**
+   * Returns the maximum number of concurrent javap processes.
+   *
+   * @return		the maximum, 0 for unlimited
+   */
+  public int getMaxProcesses() {
+    return m_MaxProcesses;
+  }
+
+  /**
+   * Sets the maximum heap for javap, passed on as -J-Xmx.
+   *
+   * @param value	the heap (eg 256m), null for the JVM default
+   */
+  public void setMaxHeap(String value) {
+    m_MaxHeap = value;
+  }
+
+  /**
+   * Returns the maximum heap for javap, passed on as -J-Xmx.
+   *
+   * @return		the heap (eg 256m), null for the JVM default
+   */
+  public String getMaxHeap() {
+    return m_MaxHeap;
+  }
+
+  /**
+   * Sets the time from which on a javap call counts as slow.
+   *
+   * @param value	the threshold in msec
+   */
+  public void setSlowThreshold(int value) {
+    m_SlowThreshold = value;
+  }
+
+  /**
+   * Returns the time from which on a javap call counts as slow.
+   *
+   * @return		the threshold in msec
+   */
+  public int getSlowThreshold() {
+    return m_SlowThreshold;
+  }
+
+  /**
+   * Returns the classpath to use for javap when parsing the class, i.e.,
+   * only the jar or directory holding the class if an index is available.
+   *
+   * @param classname	the class to parse
+   * @return		the classpath
+   */
+  protected String classpath(String classname) {
+    String	result;
+
+    result = null;
+    if (m_ClassPathIndex != null)
+      result = m_ClassPathIndex.getLocation(classname);
+    if (result == null)
+      result = m_Classpath;
+
+    return result;
+  }
+
+  /**
+   * Runs javap on the class.
+   *
+   * @param classname	the class to run javap on
+   * @param signatures	whether to output the signatures as well
+   * @return		the output, null if failed to execute, timed out or
+   * 			exited with a non-zero exit code
+   */
+  protected String javap(String classname, boolean signatures) {
+    List<String>		cmd;
+    ProcessBuilder 		builder;
+    Process			process;
+    StringBuilder		stdout;
+    StringBuilder		stderr;
+    Thread			outThread;
+    Thread			errThread;
+    long			start;
+    long			duration;
+
+    cmd = new ArrayList<>();
+    cmd.add(m_Javap.getAbsolutePath());
+    if (m_MaxHeap != null)
+      cmd.add("-J-Xmx" + m_MaxHeap);
+    if (signatures)
+      cmd.add("-s");
+    cmd.add("-public");
+    cmd.add("-cp");
+    cmd.add(classpath(classname));
+    cmd.add(classname);
+    builder = new ProcessBuilder();
+    builder.command(cmd);
+    stdout  = new StringBuilder();
+    stderr  = new StringBuilder();
+    process = null;
+
+    try {
+      if (m_Processes != null)
+	m_Processes.acquire();
+      // only time the process itself, not the wait for a slot
+      start = System.currentTimeMillis();
+      try {
+	process   = builder.start();
+	process.getOutputStream().close();
+	outThread = drain(process.getInputStream(), stdout);
+	errThread = drain(process.getErrorStream(), stderr);
+	if (m_Timeout > 0) {
+	  if (!process.waitFor(m_Timeout, TimeUnit.SECONDS)) {
+	    process.destroyForcibly().waitFor();
+	    m_Failed.put(classname, "timed out after " + m_Timeout + "s");
+	    System.err.println("javap timed out after " + m_Timeout + "s, killed: " + classname);
+	    return null;
+	  }
+	}
+	else {
+	  process.waitFor();
+	}
+	outThread.join();
+	errThread.join();
+      }
+      finally {
+	duration = System.currentTimeMillis() - start;
+	if (duration >= m_SlowThreshold)
+	  m_Slow.put(classname, duration);
+	if (m_Processes != null)
+	  m_Processes.release();
+      }
+    }
+    catch (Exception e) {
+      if (process != null)
+	process.destroyForcibly();
+      m_Failed.put(classname, "failed to execute: " + e);
+      System.err.println("Failed to execute command: " + builder.command());
+      e.printStackTrace();
+      return null;
+    }
+
+    if (process.exitValue() != 0) {
+      m_Failed.put(classname, "exit code " + process.exitValue() + (stderr.length() > 0 ? ": " + stderr.toString().trim() : ""));
+      System.err.println("javap exited with code " + process.exitValue() + ": " + classname);
+      return null;
+    }
+
+    return stdout.toString();
+  }
+
+  /**
+   * Reads the stream in a separate thread, so the process cannot block on
+   * a full pipe.
+   *
+   * @param in		the stream to read
+   * @param out		for storing the content
+   * @return		the started thread
+   */
+  protected Thread drain(final InputStream in, final StringBuilder out) {
+    Thread	result;
+
+    result = new Thread(() -> {
+      char[]	buffer;
+      int	read;
+      try (Reader reader = new InputStreamReader(in)) {
+	buffer = new char[8192];
+	while ((read = reader.read(buffer)) != -1)
+	  out.append(buffer, 0, read);
+      }
+      catch (Exception e) {
+	// ignored, process got killed
+      }
+    });
+    result.setDaemon(true);
+    result.start();
+
+    return result;
+  }
+
+  /**
+   * Returns a summary of the slow and failed javap calls.
+   *
+   * @return		the summary, null if none
+   */
+  public String summary() {
+    StringBuilder	result;
+    List<String>	slow;
+
+    result = new StringBuilder();
+    if (m_Slow.size() > 0) {
+      slow = new ArrayList<>(m_Slow.keySet());
+      slow.sort((a, b) -> Long.compare(m_Slow.get(b), m_Slow.get(a)));
+      result.append("Slow classes (>= ").append(m_SlowThreshold).append("ms):\n");
+      for (String classname : slow)
+	result.append("  ").append(classname).append(": ").append(m_Slow.get(classname)).append("ms\n");
+    }
+    if (m_Failed.size() > 0) {
+      result.append("Failed classes:\n");
+      for (Map.Entry<String,String> entry : new TreeMap<>(m_Failed).entrySet())
+	result.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+    }
+
+    return (result.length() == 0) ? null : result.toString().trim();
+  }
+
+  /**
+   * Returns the class declaration from the javap output, i.e., the line
+   * that opens the class body.
+   *
+   * @param lines	the javap output
+   * @return		the declaration, null if not found
+   */
+  protected String declaration(List<String> lines) {
+    for (String line: lines) {
+      if (line.trim().endsWith("{"))
+	return line;
+    }
+    return null;
+  }
+
+  /**
+   * Extracts the superclass and interfaces from the class declaration.
+   *
+   * @param declaration	the declaration, e.g., "public class A extends B implements C, D {"
+   * @return		the supertypes
+   */
+  protected List<String> supertypes(String declaration) {
+    List<String>	result;
+    String		tmp;
+    String		prev;
+    int			pos;
+
+    result = new ArrayList<>();
+
+    // remove type parameters, innermost first
+    tmp = declaration;
+    do {
+      prev = tmp;
+      tmp  = tmp.replaceAll("<[^<>]*>", "");
+    }
+    while (!tmp.equals(prev));
+
+    tmp = tmp.replace("{", " ");
+    pos = tmp.indexOf(" extends ");
+    if (pos == -1)
+      pos = tmp.indexOf(" implements ");
+    if (pos == -1)
+      return result;
+    tmp = tmp.substring(pos).replace(" extends ", ",").replace(" implements ", ",");
+    for (String type: tmp.split(",")) {
+      if (!type.trim().isEmpty())
+	result.add(type.trim());
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks whether any of the supertypes is serializable.
+   *
+   * @param supertypes	the supertypes to check
+   * @return		true if serializable
+   */
+  protected boolean isSerializable(List<String> supertypes) {
+    for (String type: supertypes) {
+      if (isSerializable(type))
+	return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether the class is serializable, using the cache.
+   *
+   * @param classname	the class to check
+   * @return		true if serializable
+   */
+  protected boolean isSerializable(String classname) {
+    Boolean	result;
+    String	output;
+    String	declaration;
+
+    result = m_Serializable.get(classname);
+    if (result == null) {
+      if (classname.equals("java.io.Serializable")) {
+	result = true;
+      }
+      else if (classname.equals("java.lang.Object")) {
+	result = false;
+      }
+      else {
+	output      = javap(classname, false);
+	declaration = (output == null) ? null : declaration(Arrays.asList(output.split("\n")));
+	result      = (declaration != null) && isSerializable(supertypes(declaration));
+      }
+      m_Serializable.put(classname, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Discards the cached serializable states.
+   */
+  @Override
+  public void reset() {
+    m_Serializable.clear();
+    m_Slow.clear();
+    m_Failed.clear();
   }
 
   /**
@@ -63,43 +444,35 @@ public class Parser {
    * @param classname	the classname
    * @return		the parsed descriptor, or null if failed
    */
+  @Override
   public ClassDescriptor parse(String classname) {
     ClassDescriptor		result;
-    String[]			cmd;
-    ProcessBuilder 		builder;
-    CollectingProcessOutput output;
+    String			output;
+    String			declaration;
     List<String> lines;
     int				i;
     SignatureDescriptor signature;
     MethodDescriptor		method;
     String			tmp;
     StringBuilder 		params;
-    PropertyDescriptor property;
     int				n;
 
-    cmd = new String[]{
-      m_Javap.getAbsolutePath(),
-      "-s",
-      "-public",
-      "-cp",
-      m_Classpath,
-      classname};
-    builder = new ProcessBuilder();
-    builder.command(cmd);
-    output = new CollectingProcessOutput();
-
-    try {
-      output.monitor(builder);
-    }
-    catch (Exception e) {
-      System.err.println("Failed to execute command: " + builder.command());
-      e.printStackTrace();
+    output = javap(classname, true);
+    if (output == null)
       return null;
-    }
 
     result = new ClassDescriptor();
     result.name = classname;
-    lines  = new ArrayList<>(Arrays.asList(output.getStdOut().split("\n")));
+    lines  = new ArrayList<>(Arrays.asList(output.split("\n")));
+
+    // serializable?
+    if (m_CheckSerializable) {
+      declaration = declaration(lines);
+      if (declaration != null) {
+	result.isSerializable = isSerializable(supertypes(declaration));
+	m_Serializable.put(classname, result.isSerializable);
+      }
+    }
 
     // clean up
     i = 0;
@@ -120,23 +493,19 @@ public class Parser {
     }
 
     // create descriptors
-    for (i = 0; i < lines.size(); i += 2) {
+    for (i = 0; i + 1 < lines.size(); i += 2) {
+      // fields have no argument list
+      if (!lines.get(i).contains("("))
+        continue;
+
       method = new MethodDescriptor();
 
       // name
       tmp = lines.get(i);
       method.isStatic = tmp.contains(" static ");
-      tmp = tmp.replace("public ", "");
-      tmp = tmp.replace("final ", "");
-      tmp = tmp.replace("static ", "");
       tmp = tmp.replaceAll("\\(.*", "").trim();
-      if (!tmp.contains(" ")) {
-        method.name        = tmp;
-        method.isConstructor = true;
-      }
-      else {
-        method.name = tmp.split(" ")[1];
-      }
+      method.name = tmp.substring(tmp.lastIndexOf(' ') + 1);
+      method.isConstructor = method.name.equals(classname);
 
       // signature
       tmp = lines.get(i+1);
@@ -159,8 +528,8 @@ public class Parser {
             n = 0;
             break;
           default:
-            signature.argTypes.add(params.substring(0, 1));
-            params.deleteCharAt(0);
+            signature.argTypes.add(params.substring(0, n + 1));
+            params.delete(0, n + 1);
             n = 0;
             break;
         }
@@ -179,28 +548,12 @@ public class Parser {
       }
       method.signature = signature;
 
-      if ((m_SkipPattern != null) && m_SkipPattern.matcher(method.name).matches())
+      if (skip(method.name))
         continue;
       result.methods.add(method);
     }
 
-    // determine properties
-    for (MethodDescriptor m: result.methods) {
-      if (!m.name.startsWith("set") || !m.signature.raw.endsWith("V"))
-        continue;
-      tmp = "g" + m.name.substring(1);
-      for (MethodDescriptor m2: result.methods) {
-        if (m2.name.equals(tmp)) {
-          property = new PropertyDescriptor();
-          property.name  = m.name.substring(3, 4).toLowerCase() + m.name.substring(4);
-          property.write = m;
-          property.read  = m2;
-          m.isProperty   = true;
-          m2.isProperty  = true;
-          result.properties.add(property);
-	}
-      }
-    }
+    determineProperties(result);
 
     return result;
   }
@@ -0,0 +1,265 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ReflectionParser.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * For parsing classes via reflection. The classes get loaded into an
+ * isolated class loader without initializing them, i.e., no static
+ * initializers are run. Unlike javap, inherited public methods are
+ * included as well (apart from the ones declared by java.lang.Object).
+ * Whether a class is serializable is always determined, as it comes
+ * for free.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ReflectionParser
+  extends AbstractParser {
+
+  /** the name of the frontend. */
+  public static final String NAME = "reflection";
+
+  /** the class loader for the classpath. */
+  protected URLClassLoader m_Loader;
+
+  /**
+   * Initializes the parser.
+   *
+   * @param classpath	the classpath to use
+   * @param skipPattern	the pattern for skipping methods
+   */
+  public ReflectionParser(String classpath, Pattern skipPattern) {
+    super(classpath, skipPattern);
+    m_Loader = null;
+  }
+
+  /**
+   * Returns the class loader, creating it if necessary. Its parent is the
+   * platform class loader, i.e., the classes of this tool are not visible.
+   *
+   * @return		the class loader
+   * @throws IOException	if the classpath cannot be turned into URLs
+   */
+  protected synchronized URLClassLoader getLoader() throws IOException {
+    List<URL>	urls;
+
+    if (m_Loader == null) {
+      urls = new ArrayList<>();
+      for (String element: ClassPathIndex.elements(m_Classpath))
+	urls.add(new File(element).toURI().toURL());
+      m_Loader = new URLClassLoader(urls.toArray(new URL[urls.size()]), ClassLoader.getSystemClassLoader().getParent());
+    }
+
+    return m_Loader;
+  }
+
+  /**
+   * Discards the class loader, so changed classes get loaded again.
+   */
+  @Override
+  public synchronized void reset() {
+    if (m_Loader != null) {
+      try {
+	m_Loader.close();
+      }
+      catch (Exception e) {
+	// ignored
+      }
+    }
+    m_Loader = null;
+  }
+
+  /**
+   * Returns the JNI descriptor of the type.
+   *
+   * @param type	the type to get the descriptor for
+   * @return		the descriptor
+   */
+  protected String descriptor(Class<?> type) {
+    if (type.isArray())
+      return "[" + descriptor(type.getComponentType());
+    if (type.isPrimitive())
+      return primitive(type);
+    return "L" + type.getName().replace('.', '/') + ";";
+  }
+
+  /**
+   * Returns the JNI code of the primitive type.
+   *
+   * @param type	the primitive type
+   * @return		the code
+   */
+  protected String primitive(Class<?> type) {
+    if (type == Boolean.TYPE)
+      return "Z";
+    if (type == Byte.TYPE)
+      return "B";
+    if (type == Character.TYPE)
+      return "C";
+    if (type == Short.TYPE)
+      return "S";
+    if (type == Integer.TYPE)
+      return "I";
+    if (type == Long.TYPE)
+      return "J";
+    if (type == Float.TYPE)
+      return "F";
+    if (type == Double.TYPE)
+      return "D";
+    return "V";
+  }
+
+  /**
+   * Returns the type as stored in the signature descriptor, i.e., array
+   * dimensions followed by either the primitive code or the class name
+   * with slashes.
+   *
+   * @param type	the type to convert
+   * @return		the type
+   */
+  protected String typeName(Class<?> type) {
+    if (type.isArray())
+      return "[" + typeName(type.getComponentType());
+    if (type.isPrimitive())
+      return primitive(type);
+    return type.getName().replace('.', '/');
+  }
+
+  /**
+   * Creates the signature from the parameter and return types.
+   *
+   * @param params	the parameter types
+   * @param returnType	the return type
+   * @return		the signature
+   */
+  protected SignatureDescriptor signature(Class<?>[] params, Class<?> returnType) {
+    SignatureDescriptor	result;
+    StringBuilder	raw;
+
+    result = new SignatureDescriptor();
+    raw    = new StringBuilder("(");
+    for (Class<?> param: params) {
+      raw.append(descriptor(param));
+      result.argTypes.add(typeName(param));
+    }
+    raw.append(")").append(descriptor(returnType));
+    result.raw = raw.toString();
+    if (returnType != Void.TYPE)
+      result.returnType = typeName(returnType);
+
+    return result;
+  }
+
+  /**
+   * Parses the class.
+   *
+   * @param classname	the classname
+   * @return		the parsed descriptor, or null if failed
+   */
+  @Override
+  public ClassDescriptor parse(String classname) {
+    ClassDescriptor	result;
+    Class<?>		cls;
+    Constructor<?>[]	constructors;
+    Method[]		methods;
+    MethodDescriptor	method;
+
+    result      = new ClassDescriptor();
+    result.name = classname;
+
+    try {
+      cls = Class.forName(classname, false, getLoader());
+      // like javap -public
+      if (!Modifier.isPublic(cls.getModifiers()))
+	return result;
+      result.isSerializable = Serializable.class.isAssignableFrom(cls);
+
+      constructors = cls.getConstructors();
+      Arrays.sort(constructors, Comparator.comparing((Constructor<?> c) -> descriptor(c)));
+      for (Constructor<?> constructor: constructors) {
+	// like javap, which names constructors after the class
+	if (constructor.isSynthetic() || skip(classname))
+	  continue;
+	method               = new MethodDescriptor();
+	method.name          = classname;
+	method.isConstructor = true;
+	method.signature     = signature(constructor.getParameterTypes(), Void.TYPE);
+	result.methods.add(method);
+      }
+
+      methods = cls.getMethods();
+      Arrays.sort(methods, Comparator.comparing(Method::getName).thenComparing((Method m) -> descriptor(m)));
+      for (Method m: methods) {
+	if (m.isBridge() || m.isSynthetic() || (m.getDeclaringClass() == Object.class))
+	  continue;
+	if (skip(m.getName()))
+	  continue;
+	method           = new MethodDescriptor();
+	method.name      = m.getName();
+	method.isStatic  = Modifier.isStatic(m.getModifiers());
+	method.signature = signature(m.getParameterTypes(), m.getReturnType());
+	result.methods.add(method);
+      }
+    }
+    catch (Throwable t) {
+      System.err.println("Failed to introspect class: " + classname);
+      t.printStackTrace();
+      return null;
+    }
+
+    determineProperties(result);
+
+    return result;
+  }
+
+  /**
+   * Returns the raw signature of the constructor, for sorting.
+   *
+   * @param constructor	the constructor
+   * @return		the signature
+   */
+  protected String descriptor(Constructor<?> constructor) {
+    return signature(constructor.getParameterTypes(), Void.TYPE).raw;
+  }
+
+  /**
+   * Returns the raw signature of the method, for sorting.
+   *
+   * @param method	the method
+   * @return		the signature
+   */
+  protected String descriptor(Method method) {
+    return signature(method.getParameterTypes(), method.getReturnType()).raw;
+  }
+}
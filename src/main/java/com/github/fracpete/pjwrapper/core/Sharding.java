@@ -0,0 +1,368 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Sharding.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits the classes deterministically into shards, using the hash code of
+ * the class name (which is stable across JVMs), and merges the outputs of
+ * the shards again. Next to its output, each shard writes a manifest that
+ * lists the generated chunks with their position in the requested order:
+ * <pre>
+ * shard   TAB index TAB number of shards
+ * header  TAB length
+ * class   TAB position TAB classname TAB offset TAB length
+ * </pre>
+ * Offsets and lengths are in characters.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Sharding {
+
+  /** the extension for manifest files. */
+  public static final String EXTENSION = ".manifest";
+
+  /**
+   * A chunk of generated code in a shard output.
+   */
+  protected static class Chunk {
+
+    /** the index of the shard. */
+    public int shard;
+
+    /** the position of the class in the requested order. */
+    public int position;
+
+    /** the class name. */
+    public String classname;
+
+    /** the offset in the shard output. */
+    public long offset;
+
+    /** the length. */
+    public int length;
+  }
+
+  /** the index of the shard (0-based). */
+  protected int m_Shard;
+
+  /** the number of shards. */
+  protected int m_NumShards;
+
+  /** for writing the manifest. */
+  protected Writer m_Manifest;
+
+  /** the length of the header. */
+  protected int m_HeaderLength;
+
+  /**
+   * Initializes the shard.
+   *
+   * @param shard	the index of the shard (0-based)
+   * @param numShards	the number of shards
+   */
+  public Sharding(int shard, int numShards) {
+    if (numShards < 1)
+      throw new IllegalArgumentException("At least one shard required: " + numShards);
+    if ((shard < 0) || (shard >= numShards))
+      throw new IllegalArgumentException("Shard index must be in [0, " + numShards + "): " + shard);
+    m_Shard        = shard;
+    m_NumShards    = numShards;
+    m_Manifest     = null;
+    m_HeaderLength = 0;
+  }
+
+  /**
+   * Parses the shard specification.
+   *
+   * @param spec	the specification, "index/number" (index is 0-based)
+   * @return		the shard
+   * @throws IllegalArgumentException	if the specification is invalid
+   */
+  public static Sharding parse(String spec) {
+    String[]	parts;
+
+    parts = spec.split("/");
+    if (parts.length != 2)
+      throw new IllegalArgumentException("Shard must be specified as 'index/number': " + spec);
+    try {
+      return new Sharding(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Shard must be specified as 'index/number': " + spec);
+    }
+  }
+
+  /**
+   * Returns the index of the shard.
+   *
+   * @return		the index (0-based)
+   */
+  public int getShard() {
+    return m_Shard;
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return		the number
+   */
+  public int getNumShards() {
+    return m_NumShards;
+  }
+
+  /**
+   * Checks whether the class belongs to this shard.
+   *
+   * @param classname	the class to check
+   * @return		true if part of the shard
+   */
+  public boolean accept(String classname) {
+    return Math.floorMod(classname.hashCode(), m_NumShards) == m_Shard;
+  }
+
+  /**
+   * Returns the manifest file for the output file of a shard.
+   *
+   * @param output	the output file
+   * @return		the manifest file
+   */
+  public static File manifestFile(File output) {
+    return new File(output.getPath() + EXTENSION);
+  }
+
+  /**
+   * Starts the manifest for the output file of the shard.
+   *
+   * @param output	the output file
+   * @throws IOException	if the manifest cannot be created
+   */
+  public void open(File output) throws IOException {
+    m_Manifest     = new BufferedWriter(new FileWriter(manifestFile(output)));
+    m_HeaderLength = 0;
+    m_Manifest.write("shard\t" + m_Shard + "\t" + m_NumShards + "\n");
+  }
+
+  /**
+   * Records the header, which is located at the start of the output.
+   *
+   * @param length	the length of the header
+   */
+  public void header(int length) {
+    m_HeaderLength = length;
+  }
+
+  /**
+   * Records a chunk.
+   *
+   * @param position	the position of the class in the requested order
+   * @param classname	the class
+   * @param offset	the offset of the chunk in the output
+   * @param length	the length of the chunk
+   * @throws IOException	if writing fails
+   */
+  public void chunk(int position, String classname, long offset, int length) throws IOException {
+    m_Manifest.write("class\t" + position + "\t" + classname + "\t" + offset + "\t" + length + "\n");
+  }
+
+  /**
+   * Finishes the manifest.
+   *
+   * @throws IOException	if writing fails
+   */
+  public void close() throws IOException {
+    if (m_Manifest == null)
+      return;
+    try {
+      m_Manifest.write("header\t" + m_HeaderLength + "\n");
+    }
+    finally {
+      m_Manifest.close();
+      m_Manifest = null;
+    }
+  }
+
+  /**
+   * Reads exactly the specified number of characters.
+   *
+   * @param reader	the reader to read from
+   * @param length	the number of characters
+   * @return		the characters
+   * @throws IOException	if reading fails or the end is reached prematurely
+   */
+  protected static String read(Reader reader, int length) throws IOException {
+    char[]	buffer;
+    int		pos;
+    int		read;
+
+    buffer = new char[length];
+    pos    = 0;
+    while (pos < length) {
+      read = reader.read(buffer, pos, length - pos);
+      if (read == -1)
+	throw new IOException("Premature end of shard output");
+      pos += read;
+    }
+
+    return new String(buffer);
+  }
+
+  /**
+   * Merges the outputs of the shards in the order the classes were
+   * requested, with the header only once. The result is identical to
+   * the output of a single run over all the classes.
+   *
+   * @param outputs	the outputs of all the shards
+   * @param writer	for writing the merged output
+   * @return		null if successful, otherwise error message
+   */
+  public static String merge(List<File> outputs, Writer writer) {
+    List<Chunk>		chunks;
+    Chunk		chunk;
+    int[]		headers;
+    File[]		files;
+    Reader[]		readers;
+    long[]		positions;
+    int			numShards;
+    BufferedReader	reader;
+    String		line;
+    String[]		parts;
+    String		header;
+    String		code;
+    int			shard;
+    int			i;
+
+    chunks    = new ArrayList<>();
+    numShards = -1;
+    files     = null;
+    headers   = null;
+    for (File output : outputs) {
+      shard = -1;
+      try {
+	reader = new BufferedReader(new FileReader(manifestFile(output)));
+	try {
+	  while ((line = reader.readLine()) != null) {
+	    parts = line.split("\t");
+	    switch (parts[0]) {
+	      case "shard":
+		shard = Integer.parseInt(parts[1]);
+		if (numShards == -1) {
+		  numShards = Integer.parseInt(parts[2]);
+		  files     = new File[numShards];
+		  headers   = new int[numShards];
+		}
+		else if (numShards != Integer.parseInt(parts[2])) {
+		  return "Different number of shards in manifests: " + numShards + " != " + parts[2];
+		}
+		if ((shard < 0) || (shard >= numShards))
+		  return "Invalid shard index in manifest of " + output + ": " + shard;
+		if (files[shard] != null)
+		  return "Shard " + shard + " supplied twice: " + files[shard] + ", " + output;
+		files[shard] = output;
+		break;
+	      case "header":
+		headers[shard] = Integer.parseInt(parts[1]);
+		break;
+	      case "class":
+		chunk           = new Chunk();
+		chunk.shard     = shard;
+		chunk.position  = Integer.parseInt(parts[1]);
+		chunk.classname = parts[2];
+		chunk.offset    = Long.parseLong(parts[3]);
+		chunk.length    = Integer.parseInt(parts[4]);
+		chunks.add(chunk);
+		break;
+	      default:
+		return "Unknown manifest entry in " + manifestFile(output) + ": " + line;
+	    }
+	  }
+	}
+	finally {
+	  reader.close();
+	}
+      }
+      catch (Exception e) {
+	return "Failed to read manifest: " + manifestFile(output) + "\n" + e;
+      }
+    }
+
+    if (numShards == -1)
+      return "No shard outputs provided!";
+    for (i = 0; i < numShards; i++) {
+      if (files[i] == null)
+	return "Missing output of shard " + i + "/" + numShards;
+    }
+    // the order of the chunks within a shard is also the order in the output
+    Collections.sort(chunks, (c1, c2) -> Integer.compare(c1.position, c2.position));
+
+    readers   = new Reader[numShards];
+    positions = new long[numShards];
+    header    = "";
+    try {
+      for (i = 0; i < numShards; i++) {
+	readers[i]   = new BufferedReader(new FileReader(files[i]));
+	code         = read(readers[i], headers[i]);
+	positions[i] = headers[i];
+	if (header.isEmpty())
+	  header = code;
+      }
+      if (chunks.size() > 0)
+	writer.write(header);
+      for (Chunk c : chunks) {
+	if (c.offset < positions[c.shard])
+	  return "Chunks out of order in " + files[c.shard] + ": " + c.classname;
+	readers[c.shard].skip(c.offset - positions[c.shard]);
+	writer.write(read(readers[c.shard], c.length));
+	positions[c.shard] = c.offset + c.length;
+      }
+      writer.write("\n");
+      writer.flush();
+    }
+    catch (Exception e) {
+      return "Failed to merge shard outputs!\n" + e;
+    }
+    finally {
+      for (Reader r : readers) {
+	if (r == null)
+	  continue;
+	try {
+	  r.close();
+	}
+	catch (Exception e) {
+	  // ignored
+	}
+      }
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Serialization.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * Helper for the generated Python code to (de)serialize Java objects with
+ * a single call, using byte arrays for the transfer. Needs to be on the
+ * classpath of the JVM that the generated code runs in.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Serialization {
+
+  /**
+   * Object input stream that resolves classes via the context class loader
+   * of the current thread first.
+   */
+  protected static class ContextObjectInputStream
+    extends ObjectInputStream {
+
+    /**
+     * Initializes the stream.
+     *
+     * @param in		the stream to read from
+     * @throws IOException	if reading of the stream header fails
+     */
+    public ContextObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    /**
+     * Loads the class via the context class loader, falling back on the
+     * default behavior.
+     *
+     * @param desc	the class description
+     * @return		the class
+     * @throws IOException	if reading fails
+     * @throws ClassNotFoundException	if the class cannot be located
+     */
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      ClassLoader	loader;
+
+      loader = Thread.currentThread().getContextClassLoader();
+      if (loader != null) {
+	try {
+	  return Class.forName(desc.getName(), false, loader);
+	}
+	catch (ClassNotFoundException e) {
+	  // try default
+	}
+      }
+      return super.resolveClass(desc);
+    }
+  }
+
+  /**
+   * Serializes the object.
+   *
+   * @param obj		the object to serialize
+   * @return		the serialized object
+   * @throws IOException	if serialization fails
+   */
+  public static byte[] serialize(Object obj) throws IOException {
+    ByteArrayOutputStream	bos;
+    ObjectOutputStream		oos;
+
+    bos = new ByteArrayOutputStream();
+    oos = new ObjectOutputStream(bos);
+    try {
+      oos.writeObject(obj);
+      oos.flush();
+    }
+    finally {
+      oos.close();
+    }
+
+    return bos.toByteArray();
+  }
+
+  /**
+   * Deserializes the object.
+   *
+   * @param data	the serialized object
+   * @return		the object
+   * @throws IOException	if deserialization fails
+   * @throws ClassNotFoundException	if a class of the object cannot be located
+   */
+  public static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+    ObjectInputStream	ois;
+
+    ois = new ContextObjectInputStream(new ByteArrayInputStream(data));
+    try {
+      return ois.readObject();
+    }
+    finally {
+      ois.close();
+    }
+  }
+}
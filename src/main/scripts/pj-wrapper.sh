@@ -0,0 +1,39 @@
+#!/bin/sh
+#
+# Launcher for pj-wrapper, expects the jars in the lib directory next to it.
+#
+# Uses the AppCDS archive pj-wrapper.jsa next to the script (if present) to
+# speed up the startup of the JVM. Setting PJWRAPPER_CDS_DUMP=1 creates the
+# archive at exit instead (requires Java 13+). The archive is only valid
+# for the JVM it was created with. The classes of argparse4j 0.6.0 (Java 5
+# class files) are not supported by CDS and do not get archived.
+#
+# The JVM is taken from JAVA_HOME, if set.
+
+BASEDIR=$(cd "$(dirname "$0")" && pwd)
+ARCHIVE="$BASEDIR/pj-wrapper.jsa"
+MAIN=com.github.fracpete.pjwrapper.Main
+
+if [ -n "$JAVA_HOME" ]
+then
+  JAVA="$JAVA_HOME/bin/java"
+else
+  JAVA=java
+fi
+
+# the classpath has to be identical when creating and using the archive
+CP=""
+for JAR in $(cd "$BASEDIR/lib" && LC_ALL=C ls *.jar)
+do
+  CP="$CP${CP:+:}$BASEDIR/lib/$JAR"
+done
+
+if [ "$PJWRAPPER_CDS_DUMP" = "1" ]
+then
+  exec "$JAVA" "-XX:ArchiveClassesAtExit=$ARCHIVE" -cp "$CP" $MAIN "$@"
+elif [ -f "$ARCHIVE" ]
+then
+  exec "$JAVA" -Xshare:auto "-XX:SharedArchiveFile=$ARCHIVE" -cp "$CP" $MAIN "$@"
+else
+  exec "$JAVA" -cp "$CP" $MAIN "$@"
+fi
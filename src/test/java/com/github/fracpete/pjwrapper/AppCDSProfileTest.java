@@ -0,0 +1,144 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AppCDSProfileTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the tool with the command-line of the training run of the "appcds"
+ * Maven profile, as taken from the pom.xml.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class AppCDSProfileTest {
+
+  /** the id of the execution with the training run. */
+  public static final String EXECUTION = "appcds-archive";
+
+  /** for the output. */
+  @Rule
+  public TemporaryFolder m_Temp = new TemporaryFolder();
+
+  /**
+   * Returns the java home directory that contains javap.
+   *
+   * @return		the directory
+   */
+  protected File javaHome() {
+    File	home;
+
+    home = new File(System.getProperty("java.home"));
+    // Java 8 runs from the jre sub-directory
+    if (!new File(home, "bin/javap").exists() && !new File(home, "bin/javap.exe").exists())
+      home = home.getParentFile();
+    return home;
+  }
+
+  /**
+   * Returns the arguments of the launcher in the training run, with the
+   * Maven properties replaced.
+   *
+   * @param properties	the values for the Maven properties
+   * @return		the arguments, null if the execution was not found
+   * @throws Exception	if reading the pom.xml fails
+   */
+  protected List<String> arguments(Map<String,String> properties) throws Exception {
+    List<String>	result;
+    Document		doc;
+    NodeList		executions;
+    NodeList		args;
+    Element		execution;
+    String		value;
+    int			i;
+    int			n;
+
+    doc        = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File("pom.xml"));
+    executions = doc.getElementsByTagName("execution");
+    for (i = 0; i < executions.getLength(); i++) {
+      execution = (Element) executions.item(i);
+      if (!EXECUTION.equals(execution.getElementsByTagName("id").item(0).getTextContent().trim()))
+	continue;
+      result = new ArrayList<>();
+      args   = ((Element) execution.getElementsByTagName("exec").item(0)).getElementsByTagName("arg");
+      // the first argument is the launcher script itself
+      for (n = 1; n < args.getLength(); n++) {
+	value = ((Element) args.item(n)).getAttribute("value");
+	for (Map.Entry<String,String> entry : properties.entrySet())
+	  value = value.replace("${" + entry.getKey() + "}", entry.getValue());
+	result.add(value);
+      }
+      return result;
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks that the training run succeeds and generates code.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testTrainingRun() throws Exception {
+    Map<String,String>	properties;
+    List<String>	args;
+    Main		main;
+    File		target;
+    File		output;
+
+    Assume.assumeTrue("No javap available", new File(javaHome(), "bin/javap").exists() || new File(javaHome(), "bin/javap.exe").exists());
+
+    target = m_Temp.getRoot();
+    new File(target, "appcds").mkdirs();
+    properties = new HashMap<>();
+    properties.put("java.home", javaHome().getAbsolutePath());
+    properties.put("basedir", new File("").getAbsolutePath());
+    properties.put("project.build.directory", target.getAbsolutePath());
+    properties.put("project.build.finalName", "pj-wrapper");
+    args = arguments(properties);
+    assertNotNull("Execution not found: " + EXECUTION, args);
+    for (String arg : args)
+      assertTrue("Unresolved property: " + arg, !arg.contains("${"));
+
+    main = new Main();
+    assertTrue("Invalid options: " + args, main.setOptions(args.toArray(new String[0])));
+    assertNull(main.execute());
+    output = new File(target, "appcds/training.py");
+    assertTrue("No output generated: " + output, output.length() > 0);
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * GeneratedModuleTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.backend;
+
+import com.github.fracpete.pjwrapper.core.Generator;
+import com.github.fracpete.pjwrapper.core.ReflectionParser;
+import com.github.fracpete.processoutput4j.output.CollectingProcessOutput;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Imports the generated modules in Python and calls the wrappers, using
+ * stand-ins for the Python libraries that record the calls (see
+ * src/test/resources/python).
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class GeneratedModuleTest {
+
+  /** the Python executable. */
+  public static final String PYTHON = "python3";
+
+  /** the classes to generate the wrappers for (Thread is not serializable). */
+  public static final List<String> CLASSES = Arrays.asList(
+    "java.util.ArrayList", "java.lang.Math", "java.util.AbstractMap$SimpleEntry", "java.lang.Thread");
+
+  /** for temporary files. */
+  @Rule
+  public TemporaryFolder m_Temp = new TemporaryFolder();
+
+  /**
+   * Copies the resource into the directory.
+   *
+   * @param resource	the resource, relative to the "python" resource directory
+   * @param dir		the directory to copy to
+   * @throws Exception	if copying fails
+   */
+  protected void copy(String resource, File dir) throws Exception {
+    File	file;
+
+    file = new File(dir, resource);
+    file.getParentFile().mkdirs();
+    try (InputStream in = getClass().getResourceAsStream("/python/" + resource)) {
+      Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Generates the module "wrappers" with the backend, including pickling
+   * support, and runs the check script against it.
+   *
+   * @param backend	the backend to use
+   * @param script	the check script to run
+   * @param resources	the stand-ins for the Python libraries to copy
+   * @throws Exception	if the test fails
+   */
+  protected void check(String backend, String script, String... resources) throws Exception {
+    File			dir;
+    Generator			generator;
+    ReflectionParser		parser;
+    StringBuilder		code;
+    ProcessBuilder		builder;
+    CollectingProcessOutput	output;
+
+    dir       = m_Temp.newFolder(backend);
+    generator = new Generator(AbstractBackend.forName(backend));
+    generator.setWrapped(new HashSet<>(CLASSES));
+    generator.setPickle(true);
+    parser    = new ReflectionParser(".", null);
+    code      = new StringBuilder();
+    generator.generateHeader(code);
+    for (String classname : CLASSES)
+      assertNull(generator.generateClass(parser.parse(classname), code));
+    Files.write(new File(dir, "wrappers.py").toPath(), code.toString().getBytes(StandardCharsets.UTF_8));
+    copy(script, dir);
+    for (String resource : resources)
+      copy(resource, dir);
+
+    builder = new ProcessBuilder(PYTHON, script);
+    builder.directory(dir);
+    output = new CollectingProcessOutput();
+    try {
+      output.monitor(builder);
+    }
+    catch (Exception e) {
+      Assume.assumeNoException("Python not available: " + PYTHON, e);
+    }
+    assertEquals(output.getStdErr(), 0, output.getExitCode());
+  }
+
+  /**
+   * Tests the javabridge backend.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testJavabridge() throws Exception {
+    check(JavabridgeBackend.NAME, "check_javabridge.py", "javabridge.py", "numpy.py");
+  }
+
+  /**
+   * Tests the JPype backend.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testJPype() throws Exception {
+    check(JPypeBackend.NAME, "check_jpype.py", "jpype.py");
+  }
+
+  /**
+   * Tests the python-weka-wrapper backend.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testPWW() throws Exception {
+    check(PWWBackend.NAME, "check_pww.py", "javabridge.py", "numpy.py", "weka/__init__.py", "weka/core/__init__.py", "weka/core/classes.py");
+  }
+}
@@ -0,0 +1,360 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Startup.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.benchmark;
+
+import com.github.fracpete.processoutput4j.output.CollectingProcessOutput;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Measures the startup of the tool for a short run (a single class), once
+ * without and once with the AppCDS archive created by the "appcds" Maven
+ * profile, and compares the median times against recorded baselines.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Startup {
+
+  /** the name of the AppCDS archive. */
+  public static final String ARCHIVE = "pj-wrapper.jsa";
+
+  /** the directory with the launcher, the jars and the archive. */
+  protected File m_Dir;
+
+  /** the java home directory to use. */
+  protected File m_JavaHome;
+
+  /** the class to generate the wrapper for. */
+  protected String m_Class;
+
+  /** the number of runs per variant. */
+  protected int m_Runs;
+
+  /** the file with the baselines. */
+  protected File m_Baseline;
+
+  /** whether to record the baselines rather than comparing against them. */
+  protected boolean m_Record;
+
+  /** the tolerance for the comparison with the baselines (0-1). */
+  protected double m_Tolerance;
+
+  /**
+   * Initializes the benchmark.
+   */
+  public Startup() {
+    m_Dir       = new File("target" + File.separator + "appcds");
+    m_JavaHome  = null;
+    m_Class     = "java.lang.Object";
+    m_Runs      = 10;
+    m_Baseline  = null;
+    m_Record    = false;
+    m_Tolerance = 0.2;
+  }
+
+  /**
+   * Assembles the classpath the same way as the launcher script, i.e.,
+   * all the jars in the lib directory sorted by name. The classpath must
+   * match the one used when creating the archive.
+   *
+   * @return		the classpath
+   */
+  protected String classpath() {
+    StringBuilder	result;
+    List<String>	jars;
+    File		lib;
+
+    lib  = new File(m_Dir, "lib");
+    jars = new ArrayList<>();
+    for (File file : lib.listFiles()) {
+      if (file.getName().endsWith(".jar"))
+	jars.add(file.getName());
+    }
+    Collections.sort(jars);
+
+    result = new StringBuilder();
+    for (String jar : jars) {
+      if (result.length() > 0)
+	result.append(File.pathSeparator);
+      result.append(new File(lib, jar).getAbsolutePath());
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Runs the tool once.
+   *
+   * @param archive	whether to use the archive
+   * @param output	the file to write the generated code to
+   * @return		the wall-clock time in msec, -1 if failed
+   */
+  protected double run(boolean archive, File output) {
+    List<String>		cmd;
+    ProcessBuilder		builder;
+    CollectingProcessOutput	out;
+    long			start;
+
+    cmd = new ArrayList<>();
+    cmd.add(new File(m_JavaHome, "bin" + File.separator + "java").getAbsolutePath());
+    if (archive) {
+      cmd.add("-Xshare:auto");
+      cmd.add("-XX:SharedArchiveFile=" + new File(m_Dir, ARCHIVE).getAbsolutePath());
+    }
+    cmd.add("-cp");
+    cmd.add(classpath());
+    cmd.add("com.github.fracpete.pjwrapper.Main");
+    cmd.addAll(Arrays.asList("--java-home", m_JavaHome.getAbsolutePath(), "--class-path", classpath(), "--class", m_Class, "--output", output.getAbsolutePath()));
+
+    builder = new ProcessBuilder();
+    builder.command(cmd);
+    out   = new CollectingProcessOutput();
+    start = System.nanoTime();
+    try {
+      out.monitor(builder);
+    }
+    catch (Exception e) {
+      System.err.println("Failed to execute command: " + builder.command());
+      e.printStackTrace();
+      return -1;
+    }
+    if (out.getExitCode() != 0) {
+      System.err.println("Command failed: " + builder.command() + "\n" + out.getStdErr());
+      return -1;
+    }
+
+    return (System.nanoTime() - start) / 1e6;
+  }
+
+  /**
+   * Measures the median startup time.
+   *
+   * @param archive	whether to use the archive
+   * @return		the median in msec, -1 if failed
+   */
+  protected double measure(boolean archive) {
+    List<Double>	times;
+    File		output;
+    double		time;
+    int			i;
+
+    output = new File(System.getProperty("java.io.tmpdir"), "pjwrapper-startup.py");
+    // warm up the file system cache
+    if (run(archive, output) < 0)
+      return -1;
+    times = new ArrayList<>();
+    for (i = 0; i < m_Runs; i++) {
+      time = run(archive, output);
+      if (time < 0)
+	return -1;
+      times.add(time);
+    }
+    output.delete();
+    Collections.sort(times);
+
+    return times.get(times.size() / 2);
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  public String execute() {
+    String[]		names;
+    double[]		times;
+    Properties		baseline;
+    InputStream		in;
+    OutputStream	out;
+    String		value;
+    double		expected;
+    int			i;
+
+    if (m_JavaHome == null)
+      m_JavaHome = new File(System.getProperty("java.home"));
+    if (!new File(m_Dir, "lib").isDirectory())
+      return "No lib directory, build with the 'appcds' profile first: " + m_Dir;
+    if (!new File(m_Dir, ARCHIVE).isFile())
+      return "No AppCDS archive, build with the 'appcds' profile first: " + new File(m_Dir, ARCHIVE);
+
+    names = new String[]{"default", "appcds"};
+    times = new double[names.length];
+    for (i = 0; i < names.length; i++) {
+      times[i] = measure(i == 1);
+      if (times[i] < 0)
+	return "Failed to run variant: " + names[i];
+      System.out.println(String.format("%-10s %10.1f ms (median of %d runs)", names[i], times[i], m_Runs));
+    }
+    System.out.println(String.format("%-10s %10.2f", "speedup", times[0] / times[1]));
+
+    baseline = new Properties();
+    if ((m_Baseline != null) && m_Baseline.exists()) {
+      try {
+	in = new FileInputStream(m_Baseline);
+	try {
+	  baseline.load(in);
+	}
+	finally {
+	  in.close();
+	}
+      }
+      catch (IOException e) {
+	return "Failed to read baseline: " + m_Baseline + "\n" + e;
+      }
+    }
+
+    if (!m_Record) {
+      for (i = 0; i < names.length; i++) {
+	value = baseline.getProperty("startup." + names[i] + ".ms");
+	if (value == null)
+	  continue;
+	expected = Double.parseDouble(value);
+	if (times[i] > expected * (1.0 + m_Tolerance))
+	  return names[i] + ": startup increased to " + times[i] + " ms (baseline: " + expected + ")";
+      }
+    }
+    else if (m_Baseline != null) {
+      for (i = 0; i < names.length; i++)
+	baseline.setProperty("startup." + names[i] + ".ms", "" + times[i]);
+      try {
+	out = new FileOutputStream(m_Baseline);
+	try {
+	  baseline.store(out, "pj-wrapper startup baselines for " + m_Class);
+	}
+	finally {
+	  out.close();
+	}
+      }
+      catch (IOException e) {
+	return "Failed to write baseline: " + m_Baseline + "\n" + e;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Parses the command-line options.
+   *
+   * @param options	the options
+   * @return		true if successful
+   */
+  public boolean setOptions(String[] options) {
+    ArgumentParser parser;
+    Namespace ns;
+
+    parser = ArgumentParsers.newArgumentParser(getClass().getName());
+    parser.addArgument("--dir")
+      .type(Arguments.fileType())
+      .setDefault(m_Dir)
+      .dest("dir")
+      .required(false)
+      .help("The directory with the jars and the AppCDS archive, as created by the 'appcds' profile.");
+    parser.addArgument("--java-home")
+      .type(Arguments.fileType().verifyExists().verifyIsDirectory())
+      .dest("javahome")
+      .required(false)
+      .help("The java home directory of the JDK that created the archive, default is the running JVM.");
+    parser.addArgument("--class")
+      .setDefault(m_Class)
+      .dest("class")
+      .required(false)
+      .help("The class to generate the wrapper for in each run.");
+    parser.addArgument("--runs")
+      .type(Integer.class)
+      .setDefault(m_Runs)
+      .dest("runs")
+      .required(false)
+      .help("The number of runs per variant.");
+    parser.addArgument("--baseline")
+      .type(Arguments.fileType())
+      .dest("baseline")
+      .required(false)
+      .help("The properties file with the baselines for the startup times.");
+    parser.addArgument("--record")
+      .dest("record")
+      .required(false)
+      .action(Arguments.storeTrue())
+      .help("Records the measurements as new baselines instead of comparing against them.");
+    parser.addArgument("--tolerance")
+      .type(Double.class)
+      .setDefault(m_Tolerance)
+      .dest("tolerance")
+      .required(false)
+      .help("The tolerated relative deviation from the baselines (0-1).");
+
+    try {
+      ns = parser.parseArgs(options);
+    }
+    catch (ArgumentParserException e) {
+      parser.handleError(e);
+      return false;
+    }
+
+    m_Dir       = ns.get("dir");
+    m_JavaHome  = ns.get("javahome");
+    m_Class     = ns.getString("class");
+    m_Runs      = ns.getInt("runs");
+    m_Baseline  = ns.get("baseline");
+    m_Record    = ns.get("record");
+    m_Tolerance = ns.getDouble("tolerance");
+
+    return true;
+  }
+
+  /**
+   * Runs the benchmark from command-line.
+   *
+   * @param args	the command-line arguments, use -h/--help for help output
+   * @throws Exception	if parsing fails
+   */
+  public static void main(String[] args) throws Exception {
+    Startup 	startup;
+    String	error;
+
+    startup = new Startup();
+    if (startup.setOptions(args)) {
+      error = startup.execute();
+      if (error != null) {
+	System.err.println(error);
+	System.exit(2);
+      }
+    }
+    else {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,607 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Stress.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.benchmark;
+
+import com.github.fracpete.pjwrapper.Main;
+import com.github.fracpete.pjwrapper.backend.AbstractBackend;
+import com.github.fracpete.pjwrapper.core.ClassPathIndex;
+import com.github.fracpete.pjwrapper.core.Parser;
+import com.github.fracpete.pjwrapper.core.ReflectionParser;
+import com.github.fracpete.processoutput4j.output.CollectingProcessOutput;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Stress test that generates wrappers for large numbers of JDK classes
+ * (including nested ones) with all frontends, backends and thread counts,
+ * checks the generated code with Python's py_compile and compares
+ * throughput and peak heap usage against baselines.
+ * <br>
+ * Throughput and heap depend on the machine, hence no baselines are
+ * shipped: record them first with --record on the machine that performs
+ * the comparisons. Without a baseline for each variant, the comparison
+ * fails. Lives in the test sources so it does not end up in the jar;
+ * the "stress" Maven profile runs it via StressTest.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Stress {
+
+  /** the java home directory to use. */
+  protected File m_JavaHome;
+
+  /** the JDK modules to take the classes from. */
+  protected List<String> m_Modules;
+
+  /** the maximum number of classes to process (0 for all). */
+  protected int m_MaxClasses;
+
+  /** the thread counts to run with. */
+  protected List<Integer> m_NumThreads;
+
+  /** the Python executable. */
+  protected String m_Python;
+
+  /** the file with the baselines. */
+  protected File m_Baseline;
+
+  /** whether to record the baselines rather than comparing against them. */
+  protected boolean m_Record;
+
+  /** the tolerance for the comparison with the baselines (0-1). */
+  protected double m_Tolerance;
+
+  /** the directory for the generated code, created for each run. */
+  protected File m_TempDir;
+
+  /** the empty directory used as classpath, created for each run. */
+  protected File m_ClassPath;
+
+  /**
+   * Initializes the stress test.
+   */
+  public Stress() {
+    m_JavaHome   = null;
+    m_Modules    = new ArrayList<>(Arrays.asList("java.base", "java.desktop", "java.sql", "java.xml"));
+    m_MaxClasses = 2000;
+    m_NumThreads = new ArrayList<>(Arrays.asList(1, 4));
+    m_Python     = "python3";
+    m_Baseline   = null;
+    m_Record     = false;
+    m_Tolerance  = 0.2;
+    m_TempDir    = null;
+    m_ClassPath  = null;
+  }
+
+  /**
+   * Determines the JDK home directory of the currently running JVM.
+   *
+   * @return		the directory
+   */
+  protected File currentJavaHome() {
+    File	result;
+
+    result = new File(System.getProperty("java.home"));
+    // Java 8 runs from the jre sub-directory
+    if (!new File(result, "bin" + File.separator + "javap").exists() && !new File(result, "bin" + File.separator + "javap.exe").exists())
+      result = result.getParentFile();
+
+    return result;
+  }
+
+  /**
+   * Lists the classes of the modules, sampled evenly if more
+   * classes than allowed are available.
+   *
+   * @return		the class names, sorted
+   * @throws IOException	if listing fails
+   */
+  protected List<String> listClasses() throws IOException {
+    List<String>	all;
+    List<String>	result;
+    FileSystem		jrt;
+    File		rtjar;
+    Stream<Path>	files;
+    String		name;
+    int			i;
+
+    all   = new ArrayList<>();
+    rtjar = new File(m_JavaHome, "jre" + File.separator + "lib" + File.separator + "rt.jar");
+    if (rtjar.exists()) {
+      // Java 8 has no modules
+      all.addAll(new ClassPathIndex(rtjar.getAbsolutePath()).classnames());
+    }
+    else {
+      jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+      for (String module : m_Modules) {
+	files = Files.walk(jrt.getPath("/modules", module));
+	try {
+	  for (Path file : (Iterable<Path>) files::iterator) {
+	    if (file.getNameCount() <= 2)
+	      continue;
+	    name = file.subpath(2, file.getNameCount()).toString();
+	    if (name.endsWith(".class") && !name.endsWith("-info.class"))
+	      all.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+	  }
+	}
+	finally {
+	  files.close();
+	}
+      }
+    }
+    Collections.sort(all);
+
+    if ((m_MaxClasses <= 0) || (all.size() <= m_MaxClasses))
+      return all;
+
+    result = new ArrayList<>();
+    for (i = 0; i < m_MaxClasses; i++)
+      result.add(all.get((int) ((long) i * all.size() / m_MaxClasses)));
+
+    return result;
+  }
+
+  /**
+   * Returns the variants of the tool configuration to run.
+   *
+   * @return		the variants
+   */
+  protected List<Variant> variants() {
+    List<Variant>	result;
+
+    result = new ArrayList<>();
+    for (String frontend : new String[]{Parser.NAME, ReflectionParser.NAME}) {
+      for (String backend : AbstractBackend.getBackends()) {
+	for (int numThreads : m_NumThreads)
+	  result.add(new Variant(frontend + "-" + backend + "-" + numThreads + "t", frontend, backend, numThreads));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the peak heap usage since the last reset.
+   *
+   * @return		the peak heap usage in bytes across all heap pools
+   */
+  protected long peakHeap() {
+    long	result;
+
+    result = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP)
+	result += pool.getPeakUsage().getUsed();
+    }
+
+    return result;
+  }
+
+  /**
+   * Resets the peak heap usage.
+   */
+  protected void resetPeakHeap() {
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP)
+	pool.resetPeakUsage();
+    }
+  }
+
+  /**
+   * Checks the syntax of the Python file.
+   *
+   * @param file	the file to check
+   * @return		null if successful, otherwise error message
+   */
+  protected String compile(File file) {
+    ProcessBuilder		builder;
+    CollectingProcessOutput	output;
+
+    builder = new ProcessBuilder();
+    builder.command(m_Python, "-m", "py_compile", file.getAbsolutePath());
+    output = new CollectingProcessOutput();
+    try {
+      output.monitor(builder);
+    }
+    catch (Exception e) {
+      return "Failed to execute command: " + builder.command() + "\n" + e;
+    }
+    if (output.getExitCode() != 0)
+      return "Generated code does not compile: " + file + "\n" + output.getStdErr();
+
+    return null;
+  }
+
+  /**
+   * Runs the variant and checks the output.
+   *
+   * @param variant	the variant to run
+   * @param classes	the classes to generate wrappers for
+   * @return		null if successful, otherwise error message
+   */
+  protected String run(Variant variant, List<String> classes) {
+    String	result;
+    Main	main;
+    File	output;
+    long	start;
+    double	secs;
+
+    output = new File(m_TempDir, "pjwrapper-stress-" + variant.name + ".py");
+    main   = new Main();
+    main.setJavaHome(m_JavaHome);
+    main.setClassPath(m_ClassPath.getAbsolutePath());
+    main.setClasses(classes);
+    main.setOutputFile(output);
+    variant.configure(main);
+
+    resetPeakHeap();
+    start  = System.nanoTime();
+    result = main.execute();
+    secs   = (System.nanoTime() - start) / 1e9;
+    if (result != null)
+      return variant.name + ": " + result;
+
+    variant.throughput = classes.size() / secs;
+    variant.peakHeap   = peakHeap();
+    System.out.println(String.format("%-30s %10.1f classes/s %10.1f MB peak heap",
+      variant.name, variant.throughput, variant.peakHeap / 1024.0 / 1024.0));
+
+    result = compile(output);
+    if (result == null)
+      output.delete();
+    else
+      result = variant.name + ": " + result;
+
+    return result;
+  }
+
+  /**
+   * Compares the variant against the recorded baseline.
+   *
+   * @param variant	the variant to check
+   * @param baseline	the baselines
+   * @return		null if successful, otherwise error message
+   */
+  protected String compare(Variant variant, Properties baseline) {
+    String	value;
+    double	expected;
+
+    value = baseline.getProperty(variant.name + ".throughput");
+    if (value == null)
+      return variant.name + ": no throughput baseline in " + m_Baseline + ", record it with --record";
+    expected = Double.parseDouble(value);
+    if (variant.throughput < expected * (1.0 - m_Tolerance))
+      return variant.name + ": throughput dropped to " + variant.throughput + " classes/s (baseline: " + expected + ")";
+
+    value = baseline.getProperty(variant.name + ".peakheap");
+    if (value == null)
+      return variant.name + ": no peak heap baseline in " + m_Baseline + ", record it with --record";
+    expected = Double.parseDouble(value);
+    if (variant.peakHeap > expected * (1.0 + m_Tolerance))
+      return variant.name + ": peak heap increased to " + variant.peakHeap + " bytes (baseline: " + (long) expected + ")";
+
+    return null;
+  }
+
+  /**
+   * Deletes the file or directory (recursively).
+   *
+   * @param file	the file or directory to delete
+   */
+  protected void delete(File file) {
+    File[]	files;
+
+    files = file.listFiles();
+    if (files != null) {
+      for (File f : files)
+	delete(f);
+    }
+    file.delete();
+  }
+
+  /**
+   * Removes the temporary directories, including py_compile's cache.
+   */
+  protected void cleanUp() {
+    if (m_TempDir != null)
+      delete(m_TempDir);
+  }
+
+  /**
+   * Runs the stress test.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  public String execute() {
+    String		result;
+
+    try {
+      m_TempDir   = Files.createTempDirectory("pjwrapper-stress").toFile();
+      m_ClassPath = new File(m_TempDir, "classpath");
+      if (!m_ClassPath.mkdir())
+	return "Failed to create classpath directory: " + m_ClassPath;
+    }
+    catch (IOException e) {
+      return "Failed to create temporary directory!\n" + e;
+    }
+
+    result = stress();
+    // keep the code of a failed variant for inspection
+    if (result == null)
+      cleanUp();
+    else
+      result += "\nGenerated code: " + m_TempDir;
+
+    return result;
+  }
+
+  /**
+   * Runs all the variants.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  protected String stress() {
+    String		result;
+    List<String>	classes;
+    List<Variant>	variants;
+    Properties		baseline;
+    InputStream		in;
+    OutputStream	out;
+
+    if (m_JavaHome == null)
+      m_JavaHome = currentJavaHome();
+    if (m_Baseline == null)
+      return "No baseline file supplied!";
+    if (!m_Record && !m_Baseline.exists())
+      return "No baseline to compare against, record it first with --record: " + m_Baseline;
+
+    try {
+      classes = listClasses();
+    }
+    catch (IOException e) {
+      return "Failed to list classes of modules " + m_Modules + "\n" + e;
+    }
+    System.out.println("Classes: " + classes.size());
+
+    baseline = new Properties();
+    if (!m_Record) {
+      try {
+	in = new FileInputStream(m_Baseline);
+	try {
+	  baseline.load(in);
+	}
+	finally {
+	  in.close();
+	}
+      }
+      catch (IOException e) {
+	return "Failed to read baseline: " + m_Baseline + "\n" + e;
+      }
+    }
+
+    variants = variants();
+    for (Variant variant : variants) {
+      result = run(variant, classes);
+      if ((result == null) && !m_Record)
+	result = compare(variant, baseline);
+      if (result != null)
+	return result;
+    }
+
+    if (m_Record) {
+      for (Variant variant : variants) {
+	baseline.setProperty(variant.name + ".throughput", "" + variant.throughput);
+	baseline.setProperty(variant.name + ".peakheap", "" + variant.peakHeap);
+      }
+      try {
+	out = new FileOutputStream(m_Baseline);
+	try {
+	  baseline.store(out, "pj-wrapper stress baselines for " + classes.size() + " classes");
+	}
+	finally {
+	  out.close();
+	}
+      }
+      catch (IOException e) {
+	return "Failed to write baseline: " + m_Baseline + "\n" + e;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Parses the command-line options.
+   *
+   * @param options	the options
+   * @return		true if successful
+   */
+  public boolean setOptions(String[] options) {
+    ArgumentParser parser;
+    Namespace ns;
+
+    parser = ArgumentParsers.newArgumentParser(getClass().getName());
+    parser.addArgument("--java-home")
+      .type(Arguments.fileType().verifyExists().verifyIsDirectory())
+      .dest("javahome")
+      .required(false)
+      .help("The java home directory of the JDK to take the classes and javap from, default is the running JVM.");
+    parser.addArgument("--module")
+      .setDefault(new ArrayList<String>())
+      .dest("modules")
+      .action(Arguments.append())
+      .required(false)
+      .help("The JDK module to take classes from, can be supplied multiple times; default: " + m_Modules);
+    parser.addArgument("--max-classes")
+      .type(Integer.class)
+      .setDefault(m_MaxClasses)
+      .dest("maxclasses")
+      .required(false)
+      .help("The maximum number of classes to process, sampled evenly from all classes; 0 for all.");
+    parser.addArgument("--num-threads")
+      .type(Integer.class)
+      .setDefault(new ArrayList<Integer>())
+      .dest("numthreads")
+      .action(Arguments.append())
+      .required(false)
+      .help("The number of parser threads to run with, can be supplied multiple times; default: " + m_NumThreads);
+    parser.addArgument("--python")
+      .setDefault(m_Python)
+      .dest("python")
+      .required(false)
+      .help("The Python executable to check the generated code with.");
+    parser.addArgument("--baseline")
+      .type(Arguments.fileType())
+      .dest("baseline")
+      .required(true)
+      .help("The properties file with the baselines for throughput and peak heap.");
+    parser.addArgument("--record")
+      .dest("record")
+      .required(false)
+      .action(Arguments.storeTrue())
+      .help("Records the measurements as new baselines instead of comparing against them.");
+    parser.addArgument("--tolerance")
+      .type(Double.class)
+      .setDefault(m_Tolerance)
+      .dest("tolerance")
+      .required(false)
+      .help("The tolerated relative deviation from the baselines (0-1).");
+
+    try {
+      ns = parser.parseArgs(options);
+    }
+    catch (ArgumentParserException e) {
+      parser.handleError(e);
+      return false;
+    }
+
+    m_JavaHome = ns.get("javahome");
+    if (ns.getList("modules").size() > 0)
+      m_Modules = ns.getList("modules");
+    m_MaxClasses = ns.getInt("maxclasses");
+    if (ns.getList("numthreads").size() > 0)
+      m_NumThreads = ns.getList("numthreads");
+    m_Python     = ns.getString("python");
+    m_Baseline   = ns.get("baseline");
+    m_Record     = ns.get("record");
+    m_Tolerance  = ns.getDouble("tolerance");
+
+    return true;
+  }
+
+  /**
+   * A configuration of the tool to measure.
+   */
+  public static class Variant {
+
+    /** the name of the variant. */
+    public String name;
+
+    /** the frontend to parse the classes with. */
+    public String frontend;
+
+    /** the backend to generate the code for. */
+    public String backend;
+
+    /** the number of parser threads. */
+    public int numThreads;
+
+    /** the measured throughput in classes/sec. */
+    public double throughput;
+
+    /** the measured peak heap in bytes. */
+    public long peakHeap;
+
+    /**
+     * Initializes the variant.
+     *
+     * @param name	the name of the variant
+     * @param frontend	the frontend to parse the classes with
+     * @param backend	the backend to generate the code for
+     * @param numThreads	the number of parser threads
+     */
+    public Variant(String name, String frontend, String backend, int numThreads) {
+      this.name       = name;
+      this.frontend   = frontend;
+      this.backend    = backend;
+      this.numThreads = numThreads;
+    }
+
+    /**
+     * Configures the tool.
+     *
+     * @param main	the tool to configure
+     */
+    public void configure(Main main) {
+      main.setFrontend(frontend);
+      main.setBackend(backend);
+      main.setNumThreads(numThreads);
+    }
+  }
+
+  /**
+   * Runs the stress test from command-line.
+   *
+   * @param args	the command-line arguments, use -h/--help for help output
+   * @throws Exception	if parsing fails
+   */
+  public static void main(String[] args) throws Exception {
+    Stress 	stress;
+    String	error;
+
+    stress = new Stress();
+    if (stress.setOptions(args)) {
+      error = stress.execute();
+      if (error != null) {
+	System.err.println(error);
+	System.exit(2);
+      }
+    }
+    else {
+      System.exit(1);
+    }
+  }
+}
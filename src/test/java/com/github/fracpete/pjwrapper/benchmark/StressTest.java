@@ -0,0 +1,67 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StressTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.benchmark;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the stress test against the baselines. Only gets run by the
+ * "stress" Maven profile, which supplies the following system properties:
+ * <ul>
+ *   <li>pjwrapper.stress.baseline - the baseline file</li>
+ *   <li>pjwrapper.stress.record - true to record the baselines</li>
+ *   <li>pjwrapper.stress.maxclasses - the maximum number of classes</li>
+ * </ul>
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class StressTest {
+
+  /**
+   * Runs all the variants and compares them against the baselines (or
+   * records them).
+   */
+  @Test
+  public void testStress() {
+    List<String>	options;
+    Stress		stress;
+
+    options = new ArrayList<>();
+    options.add("--baseline");
+    options.add(System.getProperty("pjwrapper.stress.baseline", "stress-baseline.properties"));
+    if (Boolean.parseBoolean(System.getProperty("pjwrapper.stress.record", "false")))
+      options.add("--record");
+    if (System.getProperty("pjwrapper.stress.maxclasses", "").length() > 0) {
+      options.add("--max-classes");
+      options.add(System.getProperty("pjwrapper.stress.maxclasses"));
+    }
+
+    stress = new Stress();
+    assertTrue("Invalid options: " + options, stress.setOptions(options.toArray(new String[0])));
+    assertNull(stress.execute());
+  }
+}
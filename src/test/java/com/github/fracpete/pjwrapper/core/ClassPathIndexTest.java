@@ -0,0 +1,178 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ClassPathIndexTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the classpath index.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ClassPathIndexTest {
+
+  /** for temporary files. */
+  @Rule
+  public TemporaryFolder m_Temp = new TemporaryFolder();
+
+  /**
+   * Creates an (empty) class file.
+   *
+   * @param dir		the classpath directory
+   * @param path	the path of the class file relative to the directory
+   * @throws IOException	if creating fails
+   */
+  protected void addClass(File dir, String path) throws IOException {
+    File	file;
+
+    file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    new FileOutputStream(file).close();
+  }
+
+  /**
+   * Creates a jar with (empty) class files.
+   *
+   * @param jar		the jar to create
+   * @param paths	the paths of the class files in the jar
+   * @throws IOException	if creating fails
+   */
+  protected void createJar(File jar, String... paths) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String path : paths) {
+	out.putNextEntry(new ZipEntry(path));
+	out.closeEntry();
+      }
+    }
+  }
+
+  /**
+   * Checks that classes added to a sub-directory after persisting the index
+   * get picked up.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testDirectoryChanges() throws Exception {
+    File		dir;
+    File		file;
+    String		classpath;
+    ClassPathIndex	index;
+
+    dir       = m_Temp.newFolder("classes");
+    file      = new File(m_Temp.getRoot(), "classpath.idx");
+    classpath = dir.getAbsolutePath();
+    addClass(dir, "a/b/A.class");
+    index = ClassPathIndex.get(classpath, file);
+    assertTrue(index.contains("a.b.A"));
+    assertFalse(index.contains("a.b.C"));
+
+    addClass(dir, "a/b/C.class");
+    index = ClassPathIndex.get(classpath, file);
+    assertTrue(index.contains("a.b.C"));
+    assertEquals(dir.getAbsolutePath(), index.getLocation("a.b.C"));
+  }
+
+  /**
+   * Checks that persisted jar content and the precedence of the classpath
+   * elements survive a reload.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testPersistedJar() throws Exception {
+    File		dir;
+    File		jar;
+    File		file;
+    String		classpath;
+    ClassPathIndex	index;
+
+    dir       = m_Temp.newFolder("classes");
+    jar       = new File(m_Temp.getRoot(), "lib.jar");
+    file      = new File(m_Temp.getRoot(), "classpath.idx");
+    classpath = dir.getAbsolutePath() + File.pathSeparator + jar.getAbsolutePath();
+    addClass(dir, "a/A.class");
+    createJar(jar, "a/A.class", "a/B.class", "META-INF/x/C.class");
+    ClassPathIndex.get(classpath, file);
+
+    index = ClassPathIndex.load(file);
+    assertTrue(index.isUpToDate(classpath));
+    assertEquals(dir.getAbsolutePath(), index.getLocation("a.A"));
+    assertEquals(jar.getAbsolutePath(), index.getLocation("a.B"));
+    assertEquals(2, index.size());
+
+    // the class in the directory no longer shadows the one in the jar
+    new File(dir, "a/A.class").delete();
+    index = ClassPathIndex.get(classpath, file);
+    assertEquals(jar.getAbsolutePath(), index.getLocation("a.A"));
+
+    // a modified jar requires rebuilding
+    createJar(jar, "a/B.class");
+    jar.setLastModified(jar.lastModified() + 2000);
+    assertFalse(ClassPathIndex.load(file).isUpToDate(classpath));
+    index = ClassPathIndex.get(classpath, file);
+    assertFalse(index.contains("a.A"));
+  }
+
+  /**
+   * Checks that a wildcard element expands to the jars in the directory and
+   * that adding a jar there requires rebuilding.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testWildcard() throws Exception {
+    File		lib;
+    File		file;
+    String		classpath;
+    ClassPathIndex	index;
+
+    lib       = m_Temp.newFolder("lib");
+    file      = new File(m_Temp.getRoot(), "classpath.idx");
+    classpath = lib.getAbsolutePath() + File.separator + "*";
+    createJar(new File(lib, "b.jar"), "b/B.class");
+    createJar(new File(lib, "a.jar"), "a/A.class");
+    new FileOutputStream(new File(lib, "readme.txt")).close();
+    assertEquals(2, ClassPathIndex.elements(classpath).size());
+    assertEquals(new File(lib, "a.jar").getAbsolutePath(), ClassPathIndex.elements(classpath).get(0));
+
+    index = ClassPathIndex.get(classpath, file);
+    assertEquals(new File(lib, "a.jar").getAbsolutePath(), index.getLocation("a.A"));
+    assertEquals(new File(lib, "b.jar").getAbsolutePath(), index.getLocation("b.B"));
+
+    createJar(new File(lib, "c.jar"), "c/C.class");
+    assertFalse(ClassPathIndex.load(file).isUpToDate(classpath));
+    index = ClassPathIndex.get(classpath, file);
+    assertTrue(index.contains("c.C"));
+  }
+}
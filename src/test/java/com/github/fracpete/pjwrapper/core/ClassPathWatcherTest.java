@@ -0,0 +1,168 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ClassPathWatcherTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the classpath watcher.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ClassPathWatcherTest {
+
+  /** the debounce time in msec. */
+  public static final long DEBOUNCE = 200;
+
+  /** for temporary files. */
+  @Rule
+  public TemporaryFolder m_Temp = new TemporaryFolder();
+
+  /**
+   * Writes the class file with the content.
+   *
+   * @param dir		the classpath directory
+   * @param path	the path of the class file relative to the directory
+   * @param content	the content
+   * @throws IOException	if writing fails
+   */
+  protected void writeClass(File dir, String path, String content) throws IOException {
+    File	file;
+
+    file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(content.getBytes());
+    }
+  }
+
+  /**
+   * Creates a jar with class files, using the path as content.
+   *
+   * @param jar		the jar to create
+   * @param changed	the path of the class file to use different content for, null for none
+   * @param paths	the paths of the class files in the jar
+   * @throws IOException	if creating fails
+   */
+  protected void createJar(File jar, String changed, String... paths) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String path : paths) {
+	out.putNextEntry(new ZipEntry(path));
+	out.write((path.equals(changed) ? "changed" : path).getBytes());
+	out.closeEntry();
+      }
+    }
+  }
+
+  /**
+   * Waits for the next changes.
+   *
+   * @param watcher	the watcher to use
+   * @param change	performs the change once waiting
+   * @return		the changed classes
+   * @throws Exception	if waiting fails or times out
+   */
+  protected Set<String> changes(ClassPathWatcher watcher, Runnable change) throws Exception {
+    ExecutorService	executor;
+    Future<Set<String>>	future;
+
+    executor = Executors.newSingleThreadExecutor();
+    try {
+      future = executor.submit(watcher::waitForChanges);
+      change.run();
+      return future.get(30, TimeUnit.SECONDS);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Checks that a changed nested class file reports the nested class and
+   * its top-level class under their binary names.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testNestedClassInDirectory() throws Exception {
+    final File	dir;
+    Set<String>	changed;
+
+    dir = m_Temp.newFolder("classes");
+    writeClass(dir, "a/Outer.class", "1");
+    writeClass(dir, "a/Outer$Inner.class", "1");
+    try (ClassPathWatcher watcher = new ClassPathWatcher(dir.getAbsolutePath(), Arrays.asList("a.Outer", "a.Outer$Inner"), DEBOUNCE)) {
+      changed = changes(watcher, () -> {
+	try {
+	  writeClass(dir, "a/Outer$Inner.class", "2");
+	}
+	catch (IOException e) {
+	  throw new IllegalStateException(e);
+	}
+      });
+      assertEquals(new HashSet<>(Arrays.asList("a.Outer", "a.Outer$Inner")), changed);
+    }
+  }
+
+  /**
+   * Checks that nested classes in jars use the same names and that classes
+   * removed from a jar get reported.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testJar() throws Exception {
+    final File	jar;
+    Set<String>	changed;
+
+    jar = new File(m_Temp.getRoot(), "lib.jar");
+    createJar(jar, null, "a/Outer.class", "a/Outer$Inner.class", "b/B.class", "c/C.class");
+    try (ClassPathWatcher watcher = new ClassPathWatcher(jar.getAbsolutePath(), Arrays.asList("a.Outer$Inner", "b.B", "c.C"), DEBOUNCE)) {
+      // b.B gets removed, the content of a.Outer$Inner changes
+      changed = changes(watcher, () -> {
+	try {
+	  createJar(jar, "a/Outer$Inner.class", "a/Outer.class", "a/Outer$Inner.class", "c/C.class");
+	}
+	catch (IOException e) {
+	  throw new IllegalStateException(e);
+	}
+      });
+      assertEquals(new HashSet<>(Arrays.asList("a.Outer$Inner", "b.B")), changed);
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DescriptorIndexTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the descriptor index.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DescriptorIndexTest {
+
+  /** for temporary files. */
+  @Rule
+  public TemporaryFolder m_Temp = new TemporaryFolder();
+
+  /**
+   * Creates a simple descriptor.
+   *
+   * @return		the descriptor
+   */
+  protected ClassDescriptor descriptor() {
+    ClassDescriptor	result;
+    MethodDescriptor	method;
+
+    result                = new ClassDescriptor();
+    result.name           = "a.B";
+    result.isSerializable = true;
+    method                = new MethodDescriptor();
+    method.name           = "size";
+    method.signature      = new SignatureDescriptor();
+    method.signature.raw  = "()I";
+    method.signature.returnType = "I";
+    result.methods.add(method);
+
+    return result;
+  }
+
+  /**
+   * Writes and reads an index.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testRoundTrip() throws Exception {
+    File		file;
+    DescriptorIndex	index;
+    ClassDescriptor	cls;
+
+    file = m_Temp.newFile("index.pjwi");
+    DescriptorIndex.write(file, Arrays.asList(descriptor()), "^get.*");
+    index = new DescriptorIndex(file);
+    assertEquals(1, index.size());
+    assertEquals("^get.*", index.getSkip());
+    cls = index.get("a.B");
+    assertTrue(cls.isSerializable);
+    assertEquals("size", cls.methods.get(0).name);
+    assertEquals("I", cls.methods.get(0).signature.returnType);
+    assertNull(index.get("a.C"));
+
+    DescriptorIndex.write(file, Arrays.asList(descriptor()), null);
+    assertNull(new DescriptorIndex(file).getSkip());
+  }
+
+  /**
+   * Checks that truncated files get rejected with an IOException.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testTruncated() throws Exception {
+    File		file;
+    long		length;
+    long		i;
+
+    file = m_Temp.newFile("empty.pjwi");
+    new FileOutputStream(file).close();
+    try {
+      new DescriptorIndex(file);
+      fail("Empty file accepted");
+    }
+    catch (IOException e) {
+      // expected
+    }
+
+    file = m_Temp.newFile("index.pjwi");
+    DescriptorIndex.write(file, Arrays.asList(descriptor()), "^get.*");
+    length = file.length();
+    for (i = 4; i < 40; i++) {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+	raf.setLength(i);
+      }
+      try {
+	new DescriptorIndex(file);
+	fail("Index truncated to " + i + " of " + length + " bytes accepted");
+      }
+      catch (IOException e) {
+	// expected
+      }
+      DescriptorIndex.write(file, Arrays.asList(descriptor()), "^get.*");
+    }
+  }
+
+  /**
+   * Checks that corrupt counts and string lengths get rejected with an
+   * IOException rather than failing on allocation or with overflows.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testCorruptHeader() throws Exception {
+    File	file;
+    int[][]	corruptions;
+    int		stringData;
+    int		numStrings;
+    int		lastString;
+
+    file = m_Temp.newFile("index.pjwi");
+    DescriptorIndex.write(file, Arrays.asList(descriptor()), "^get.*");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      raf.seek(12);
+      numStrings = raf.readInt();
+      stringData = DescriptorIndex.HEADER + 4 * numStrings;
+      raf.seek(stringData - 4);
+      lastString = stringData + raf.readInt();
+    }
+    // position/value pairs: negative and huge counts (4 * count overflows
+    // int for 0x40000000), invalid skip index, invalid offset and lengths
+    // of the last string (which locates the class directory)
+    corruptions = new int[][]{
+      {12, -1},
+      {12, Integer.MAX_VALUE},
+      {12, 0x40000000},
+      {16, -1},
+      {16, Integer.MAX_VALUE},
+      {8, Integer.MAX_VALUE},
+      {stringData - 4, -100},
+      {stringData - 4, Integer.MAX_VALUE},
+      {lastString, -5},
+      {lastString, Integer.MAX_VALUE},
+    };
+    for (int[] corruption : corruptions) {
+      DescriptorIndex.write(file, Arrays.asList(descriptor()), "^get.*");
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+	raf.seek(corruption[0]);
+	raf.writeInt(corruption[1]);
+      }
+      try {
+	new DescriptorIndex(file);
+	fail("Corrupt index accepted: " + corruption[1] + " at " + corruption[0]);
+      }
+      catch (IOException e) {
+	// expected
+      }
+    }
+  }
+}
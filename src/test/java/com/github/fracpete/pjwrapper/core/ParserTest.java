@@ -0,0 +1,219 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ParserTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the javap frontend.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ParserTest {
+
+  /** for the fake javap and its classpath directory. */
+  @Rule
+  public TemporaryFolder m_Temp = new TemporaryFolder();
+
+  /**
+   * Returns the javap executable of the running JVM.
+   *
+   * @return		the executable
+   */
+  protected File javap() {
+    File	home;
+
+    home = new File(System.getProperty("java.home"));
+    // Java 8 runs from the jre sub-directory
+    if (!new File(home, "bin/javap").exists() && !new File(home, "bin/javap.exe").exists())
+      home = home.getParentFile();
+    if (new File(home, "bin/javap.exe").exists())
+      return new File(home, "bin/javap.exe");
+    return new File(home, "bin/javap");
+  }
+
+  /**
+   * Returns a parser that uses the fake javap shell script from the test
+   * resources, with an empty temporary directory as classpath (which the
+   * script uses for recording PIDs and running instances).
+   *
+   * @return		the parser
+   * @throws Exception	if copying the script fails
+   */
+  protected Parser fakeParser() throws Exception {
+    File	javap;
+    File	dir;
+
+    Assume.assumeTrue("No sh available", new File("/bin/sh").exists());
+    javap = new File(m_Temp.getRoot(), "javap");
+    try (InputStream in = getClass().getResourceAsStream("/javap/javap")) {
+      Files.copy(in, javap.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    assertTrue("Failed to make executable: " + javap, javap.setExecutable(true));
+    dir = m_Temp.newFolder("classpath");
+
+    return new Parser(javap, dir.getAbsolutePath(), null);
+  }
+
+  /**
+   * Checks whether the process is still alive.
+   *
+   * @param pid		the process ID
+   * @return		true if alive
+   * @throws Exception	if checking fails
+   */
+  protected boolean isAlive(String pid) throws Exception {
+    return new ProcessBuilder("kill", "-0", pid).start().waitFor() == 0;
+  }
+
+  /**
+   * Checks that a class javap fails on (non-zero exit code) is skipped
+   * and reported, while other classes still get parsed.
+   */
+  @Test
+  public void testFailedClass() {
+    Parser	parser;
+    String	summary;
+
+    parser = new Parser(javap(), System.getProperty("java.class.path"), null);
+    parser.setMaxProcesses(1);
+    parser.setSlowThreshold(Integer.MAX_VALUE);
+    assertNull(parser.parse("no.such.Class"));
+    assertNotNull(parser.parse("java.util.ArrayList"));
+    summary = parser.summary();
+    assertNotNull(summary);
+    assertTrue(summary, summary.contains("no.such.Class"));
+    assertTrue(summary, summary.contains("exit code"));
+    assertTrue(summary, !summary.contains("java.util.ArrayList"));
+  }
+
+  /**
+   * Checks that javap gets killed once the timeout is reached and that the
+   * class gets reported.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testTimeout() throws Exception {
+    Parser	parser;
+    File	pidFile;
+    String	pid;
+    long	start;
+    String	summary;
+
+    parser = fakeParser();
+    parser.setTimeout(1);
+    start = System.currentTimeMillis();
+    assertNull(parser.parse("test.Sleep"));
+    assertTrue("Not killed after timeout", System.currentTimeMillis() - start < 30000);
+    pidFile = new File(parser.m_Classpath, "test.Sleep.pid");
+    assertTrue("No PID recorded", pidFile.exists());
+    pid = new String(Files.readAllBytes(pidFile.toPath())).trim();
+    assertFalse("Still running: " + pid, isAlive(pid));
+    assertNotNull(parser.parse("test.Fast"));
+    summary = parser.summary();
+    assertNotNull(summary);
+    assertTrue(summary, summary.contains("test.Sleep: timed out after 1s"));
+    assertFalse(summary, summary.contains("test.Fast"));
+  }
+
+  /**
+   * Checks that no more javap processes than the maximum run at the same
+   * time, even with more threads parsing.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testMaxProcesses() throws Exception {
+    final Parser		parser;
+    ExecutorService		executor;
+    List<Future<ClassDescriptor>>	futures;
+    int				max;
+    int				i;
+
+    parser = fakeParser();
+    parser.setMaxProcesses(2);
+    executor = Executors.newFixedThreadPool(6);
+    futures  = new ArrayList<>();
+    try {
+      for (i = 0; i < 6; i++) {
+	final String classname = "test.Count" + i;
+	futures.add(executor.submit(() -> parser.parse(classname)));
+      }
+      for (Future<ClassDescriptor> future : futures)
+	assertNotNull(future.get(60, TimeUnit.SECONDS));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    max = 0;
+    for (String line : Files.readAllLines(new File(parser.m_Classpath, "counts").toPath()))
+      max = Math.max(max, Integer.parseInt(line.trim()));
+    assertTrue("More than 2 processes: " + max, max <= 2);
+    assertNull(parser.summary());
+  }
+
+  /**
+   * Checks that slow classes get reported, but still parsed, and that the
+   * error output of failed classes ends up in the summary.
+   *
+   * @throws Exception	if the test fails
+   */
+  @Test
+  public void testSlowAndFailed() throws Exception {
+    Parser	parser;
+    String	summary;
+
+    parser = fakeParser();
+    parser.setSlowThreshold(500);
+    assertNotNull(parser.parse("test.Slow"));
+    assertNotNull(parser.parse("test.Fast"));
+    assertNull(parser.parse("test.Fail"));
+    summary = parser.summary();
+    assertNotNull(summary);
+    assertTrue(summary, summary.startsWith("Slow classes (>= 500ms):\n  test.Slow: "));
+    assertTrue(summary, summary.contains("Failed classes:\n  test.Fail: exit code 1: error: class not found: test.Fail"));
+    assertFalse(summary, summary.contains("test.Fast"));
+
+    parser.reset();
+    assertNull(parser.summary());
+  }
+}
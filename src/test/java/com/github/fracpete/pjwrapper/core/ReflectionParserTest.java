@@ -0,0 +1,101 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ReflectionParserTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.fracpete.pjwrapper.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the reflection frontend against the javap one.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ReflectionParserTest {
+
+  /**
+   * Returns the javap executable of the running JVM.
+   *
+   * @return		the executable
+   */
+  protected File javap() {
+    File	home;
+
+    home = new File(System.getProperty("java.home"));
+    // Java 8 runs from the jre sub-directory
+    if (!new File(home, "bin/javap").exists() && !new File(home, "bin/javap.exe").exists())
+      home = home.getParentFile();
+    if (new File(home, "bin/javap.exe").exists())
+      return new File(home, "bin/javap.exe");
+    return new File(home, "bin/javap");
+  }
+
+  /**
+   * Returns the descriptors of the constructors.
+   *
+   * @param cls		the class to get the constructors from
+   * @return		the constructors
+   */
+  protected List<String> constructors(ClassDescriptor cls) {
+    List<String>	result;
+
+    result = new ArrayList<>();
+    for (MethodDescriptor method : cls.methods) {
+      if (method.isConstructor)
+	result.add(method.signature.raw);
+    }
+    result.sort(null);
+
+    return result;
+  }
+
+  /**
+   * Checks that both frontends determine the same constructors, with and
+   * without a skip pattern (which applies to the class name).
+   */
+  @Test
+  public void testConstructors() {
+    Pattern		skip;
+    ClassDescriptor	reflection;
+    ClassDescriptor	javap;
+    String		classname;
+
+    classname  = "java.util.ArrayList";
+    reflection = new ReflectionParser(".", null).parse(classname);
+    javap      = new Parser(javap(), ".", null).parse(classname);
+    assertEquals(3, constructors(reflection).size());
+    assertEquals(constructors(javap), constructors(reflection));
+
+    skip       = Pattern.compile(Pattern.quote(classname) + "|add.*");
+    reflection = new ReflectionParser(".", skip).parse(classname);
+    javap      = new Parser(javap(), ".", skip).parse(classname);
+    for (MethodDescriptor method : reflection.methods)
+      assertTrue(method.name, !method.isConstructor && !method.name.startsWith("add"));
+    assertEquals(0, constructors(javap).size());
+    assertEquals(constructors(javap), constructors(reflection));
+  }
+}
@@ -0,0 +1,67 @@
+"""
+Imports the module generated with the javabridge backend and calls
+constructors, methods and static methods.
+"""
+
+import javabridge
+import wrappers
+
+lst = wrappers.ArrayList.new()
+assert isinstance(lst, wrappers.ArrayList)
+assert isinstance(lst.jobject, javabridge.JObject)
+assert javabridge.CALLS[-1] == ("new_object", "java/util/ArrayList", "<init>", "()V", ())
+
+assert lst.size() == 0
+assert javabridge.CALLS[-1] == ("call_method", "java/util/ArrayList", "size", "()I", ())
+
+assert wrappers.Math.max_int_int(1, 2) == 0
+assert javabridge.CALLS[-1] == ("call_static_method", "java/lang/Math", "max", "(II)I", (1, 2))
+
+# class references and method IDs are cached
+num = len([c for c in javabridge.CALLS if c[0] == "find_class"])
+wrappers.ArrayList.new().size()
+assert num == len([c for c in javabridge.CALLS if c[0] == "find_class"])
+
+# nested classes
+entry = wrappers.AbstractMap_SimpleEntry.new_entry(None)
+assert entry.get_key().classname == "java/lang/Object"
+
+# wrappers passed to supertype/interface parameters get unwrapped
+other = wrappers.ArrayList.new_collection(lst)
+assert javabridge.CALLS[-1] == ("new_object", "java/util/ArrayList", "<init>", "(Ljava/util/Collection;)V", (lst.jobject,))
+other.add_all_collection(lst)
+assert javabridge.CALLS[-1][4] == (lst.jobject,)
+other.add_object(entry)
+assert javabridge.CALLS[-1][4] == (entry.jobject,)
+
+# Java objects and None are passed on as is
+raw = javabridge.JObject("java/lang/Object")
+other.add_object(raw)
+assert javabridge.CALLS[-1][4] == (raw,)
+other.add_object(None)
+assert javabridge.CALLS[-1][4] == (None,)
+
+# serializable classes get pickled with a single call and bulk copy each way
+import pickle
+import numpy
+del javabridge.CALLS[:]
+restored = pickle.loads(pickle.dumps(lst))
+assert isinstance(restored, wrappers.ArrayList)
+assert restored.jobject is not lst.jobject
+assert restored.jobject.classname == "java/util/ArrayList"
+assert [c[:3] for c in javabridge.CALLS if c[0] != "find_class"] == [
+    ("call_static_method", "com/github/fracpete/pjwrapper/runtime/Serialization", "serialize"),
+    ("get_byte_array_elements",),
+    ("make_byte_array",),
+    ("call_static_method", "com/github/fracpete/pjwrapper/runtime/Serialization", "deserialize"),
+], javabridge.CALLS
+assert numpy.COPIES == [], numpy.COPIES
+# states pickled as plain bytes get restored as well
+restored = wrappers.ArrayList.__new__(wrappers.ArrayList)
+restored.__setstate__(b"java/util/ArrayList")
+assert restored.jobject.classname == "java/util/ArrayList"
+
+# non-serializable classes get no pickling support
+assert "__getstate__" not in vars(wrappers.Thread)
+assert "__setstate__" not in vars(wrappers.Thread)
+assert "__getstate__" in vars(wrappers.ArrayList)
@@ -0,0 +1,98 @@
+"""
+Imports the module generated with the JPype backend and calls constructors,
+methods and static methods, from the main thread, new threads and a thread
+pool, with and without the attached context manager.
+"""
+
+import concurrent.futures
+import gc
+import threading
+import jpype
+import wrappers
+
+lst = wrappers.ArrayList.new()
+assert isinstance(lst.jobject, jpype.JObject)
+assert jpype.CALLS[-1] == ("new_object", "java.util.ArrayList", ())
+
+lst.size()
+assert jpype.CALLS[-1] == ("call_method", "java.util.ArrayList", "size", ())
+
+wrappers.Math.max_int_int(1, 2)
+assert jpype.CALLS[-1] == ("call_static_method", "java.lang.Math", "max", (1, 2))
+
+# class references are cached
+num = len([c for c in jpype.CALLS if c[0] == "find_class"])
+wrappers.ArrayList.new()
+assert num == len([c for c in jpype.CALLS if c[0] == "find_class"])
+
+# wrappers passed to supertype/interface parameters get unwrapped
+other = wrappers.ArrayList.new_collection(lst)
+assert jpype.CALLS[-1] == ("new_object", "java.util.ArrayList", (lst.jobject,))
+other.add_object(lst)
+assert jpype.CALLS[-1] == ("call_method", "java.util.ArrayList", "add", (lst.jobject,))
+
+# the main thread is attached already
+assert jpype.ATTACHES == []
+
+
+def calls():
+    lst = wrappers.ArrayList.new()
+    lst.size()
+    wrappers.Math.max_int_int(1, 2)
+    assert jpype.java.lang.Thread.isAttached()
+
+
+# a thread gets attached on first use, once, and detached when it exits
+thread = threading.Thread(target=calls)
+thread.start()
+thread.join()
+gc.collect()
+assert jpype.ATTACHES == [thread.ident], jpype.ATTACHES
+assert jpype.DETACHES == [thread.ident], jpype.DETACHES
+
+# the same for the threads of a pool
+del jpype.ATTACHES[:]
+del jpype.DETACHES[:]
+with concurrent.futures.ThreadPoolExecutor(max_workers=2) as executor:
+    for future in [executor.submit(calls) for _ in range(20)]:
+        future.result()
+gc.collect()
+assert 0 < len(jpype.ATTACHES) <= 2, jpype.ATTACHES
+assert len(jpype.ATTACHES) == len(set(jpype.ATTACHES)), jpype.ATTACHES
+assert sorted(jpype.DETACHES) == sorted(jpype.ATTACHES), (jpype.ATTACHES, jpype.DETACHES)
+
+
+# the attached context manager attaches the thread once and detaches it again
+def work():
+    with wrappers.attached():
+        with wrappers.attached():
+            wrappers.ArrayList.new().size()
+        assert jpype.java.lang.Thread.isAttached()
+    assert not jpype.java.lang.Thread.isAttached()
+
+
+del jpype.ATTACHES[:]
+del jpype.DETACHES[:]
+thread = threading.Thread(target=work)
+thread.start()
+thread.join()
+gc.collect()
+assert jpype.ATTACHES == [thread.ident], jpype.ATTACHES
+assert jpype.DETACHES == [thread.ident], jpype.DETACHES
+
+# serializable classes get pickled with a single call each way
+import pickle
+del jpype.CALLS[:]
+restored = pickle.loads(pickle.dumps(lst))
+assert isinstance(restored, wrappers.ArrayList)
+assert restored.jobject is not lst.jobject
+assert restored.jobject.classname == "java.util.ArrayList"
+assert [c[:3] for c in jpype.CALLS if c[0] != "find_class"] == [
+    ("call_static_method", "com.github.fracpete.pjwrapper.runtime.Serialization", "serialize"),
+    ("call_static_method", "com.github.fracpete.pjwrapper.runtime.Serialization", "deserialize"),
+], jpype.CALLS
+
+# non-serializable classes get no pickling support
+assert "__getstate__" not in vars(wrappers.Thread)
+assert "__setstate__" not in vars(wrappers.Thread)
+assert "__getstate__" in vars(wrappers.ArrayList)
@@ -0,0 +1,33 @@
+"""
+Imports the module generated with the python-weka-wrapper backend and calls
+constructors, methods and static methods.
+"""
+
+import javabridge
+import wrappers
+from weka.core.classes import JavaObject
+
+lst = wrappers.ArrayList.new()
+assert isinstance(lst, JavaObject)
+assert isinstance(lst.jobject, javabridge.JObject)
+assert javabridge.CALLS[-1] == ("new_object", "java/util/ArrayList", "<init>", "()V", ())
+
+assert lst.size() == 0
+assert javabridge.CALLS[-1] == ("call_method", "java/util/ArrayList", "size", "()I", ())
+
+assert wrappers.Math.max_int_int(1, 2) == 0
+assert javabridge.CALLS[-1] == ("call_static_method", "java/lang/Math", "max", "(II)I", (1, 2))
+
+# wrappers (and any other JavaObject) passed to supertype/interface parameters get unwrapped
+other = wrappers.ArrayList.new_collection(lst)
+assert javabridge.CALLS[-1] == ("new_object", "java/util/ArrayList", "<init>", "(Ljava/util/Collection;)V", (lst.jobject,))
+obj = JavaObject(javabridge.JObject("java/lang/Object"))
+other.add_object(obj)
+assert javabridge.CALLS[-1][4] == (obj.jobject,)
+
+# serializable classes get pickled, non-serializable ones not
+import pickle
+restored = pickle.loads(pickle.dumps(lst))
+assert isinstance(restored, wrappers.ArrayList)
+assert restored.jobject.classname == "java/util/ArrayList"
+assert "__getstate__" not in vars(wrappers.Thread)
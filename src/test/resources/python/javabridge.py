@@ -0,0 +1,132 @@
+"""
+Stand-in for javabridge for testing generated modules without a JVM. It
+records the JNI calls, rejects arguments that are not Java values and
+returns dummy values derived from the method descriptors. Java
+serialization turns an object into the bytes of its class name.
+"""
+
+import threading
+import numpy
+
+
+CALLS = []
+
+ATTACHES = []
+
+DETACHES = []
+
+_attached = set()
+
+SERIALIZATION = "com/github/fracpete/pjwrapper/runtime/Serialization"
+
+
+class JObject(object):
+    """
+    A Java object.
+    """
+
+    def __init__(self, classname, value=None):
+        self.classname = classname
+        self.value = value
+
+
+class JClass(object):
+    """
+    A Java class reference.
+    """
+
+    def __init__(self, name):
+        self.name = name
+
+
+def _check(args):
+    for arg in args:
+        if not (arg is None or isinstance(arg, (JObject, bool, int, float))):
+            raise TypeError("not a Java value: %r" % (arg,))
+
+
+def _result(descriptor):
+    result = descriptor[descriptor.index(")") + 1:]
+    if result == "V":
+        return None
+    if result == "Z":
+        return False
+    if result in ("B", "C", "S", "I", "J"):
+        return 0
+    if result in ("F", "D"):
+        return 0.0
+    if result.startswith("L"):
+        result = result[1:-1]
+    return JObject(result)
+
+
+class Env(object):
+    """
+    The JNI environment.
+    """
+
+    def find_class(self, name):
+        CALLS.append(("find_class", name))
+        return JClass(name)
+
+    def get_method_id(self, jclass, name, descriptor):
+        return (jclass.name, name, descriptor)
+
+    def get_static_method_id(self, jclass, name, descriptor):
+        return (jclass.name, name, descriptor)
+
+    def new_object(self, jclass, mid, *args):
+        _check(args)
+        CALLS.append(("new_object",) + mid + (args,))
+        return JObject(jclass.name)
+
+    def call_method(self, jobject, mid, *args):
+        if not isinstance(jobject, JObject):
+            raise TypeError("not a Java object: %r" % (jobject,))
+        _check(args)
+        CALLS.append(("call_method",) + mid + (args,))
+        return _result(mid[2])
+
+    def call_static_method(self, jclass, mid, *args):
+        _check(args)
+        CALLS.append(("call_static_method",) + mid + (args,))
+        if mid[0] == SERIALIZATION and mid[1] == "serialize":
+            return JObject("[B", args[0].classname.encode())
+        if mid[0] == SERIALIZATION and mid[1] == "deserialize":
+            return JObject(args[0].value.decode())
+        return _result(mid[2])
+
+    def get_byte_array_elements(self, jobject):
+        CALLS.append(("get_byte_array_elements",))
+        return numpy.frombuffer(jobject.value, numpy.uint8)
+
+    def make_byte_array(self, array):
+        if not isinstance(array, numpy.ndarray):
+            raise TypeError("not a numpy array: %r" % (array,))
+        CALLS.append(("make_byte_array",))
+        return JObject("[B", bytes(array))
+
+    def new_string_utf(self, value):
+        return JObject("java/lang/String", value)
+
+    def get_string_utf(self, jobject):
+        return jobject.value
+
+
+_ENV = Env()
+
+
+def get_env():
+    if threading.get_ident() in _attached:
+        return _ENV
+    return None
+
+
+def attach():
+    ATTACHES.append(threading.get_ident())
+    _attached.add(threading.get_ident())
+
+
+def detach():
+    DETACHES.append(threading.get_ident())
+    _attached.discard(threading.get_ident())
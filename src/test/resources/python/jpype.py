@@ -0,0 +1,116 @@
+"""
+Stand-in for JPype for testing generated modules without a JVM. It records
+the calls to Java and the attaching/detaching of threads, and rejects
+arguments that are not Java values. Java serialization turns an object into
+the bytes of its class name.
+"""
+
+import threading
+
+
+CALLS = []
+
+ATTACHES = []
+
+DETACHES = []
+
+# the thread that started the JVM is attached
+_attached = {threading.get_ident()}
+
+SERIALIZATION = "com.github.fracpete.pjwrapper.runtime.Serialization"
+
+
+class _ByteArray(bytes):
+    """
+    A Java byte array.
+    """
+    pass
+
+
+JByte = "byte"
+
+
+def JArray(component):
+    if component != JByte:
+        raise TypeError("unsupported component type: %r" % (component,))
+    return _ByteArray
+
+
+def _check(args):
+    for arg in args:
+        if not (arg is None or isinstance(arg, (JObject, _ByteArray, bool, int, float, str))):
+            raise TypeError("not a Java value: %r" % (arg,))
+
+
+class JObject(object):
+    """
+    A Java object.
+    """
+
+    def __init__(self, classname):
+        self.classname = classname
+
+    def __getattr__(self, name):
+        def method(*args):
+            _check(args)
+            CALLS.append(("call_method", self.classname, name, args))
+        return method
+
+
+class _Class(object):
+    """
+    A Java class: calling it creates an instance, attributes are the static
+    methods.
+    """
+
+    def __init__(self, name):
+        self.name = name
+
+    def __call__(self, *args):
+        _check(args)
+        CALLS.append(("new_object", self.name, args))
+        return JObject(self.name)
+
+    def __getattr__(self, name):
+        def method(*args):
+            _check(args)
+            CALLS.append(("call_static_method", self.name, name, args))
+            if self.name == SERIALIZATION and name == "serialize":
+                return _ByteArray(args[0].classname.encode())
+            if self.name == SERIALIZATION and name == "deserialize":
+                return JObject(args[0].decode())
+        return method
+
+
+def JClass(name):
+    CALLS.append(("find_class", name))
+    return _Class(name)
+
+
+class _Thread(object):
+    """
+    java.lang.Thread with JPype's methods for attaching.
+    """
+
+    @staticmethod
+    def isAttached():
+        return threading.get_ident() in _attached
+
+    @staticmethod
+    def attach():
+        ATTACHES.append(threading.get_ident())
+        _attached.add(threading.get_ident())
+
+    @staticmethod
+    def detach():
+        DETACHES.append(threading.get_ident())
+        _attached.discard(threading.get_ident())
+
+
+class _Package(object):
+    pass
+
+
+java = _Package()
+java.lang = _Package()
+java.lang.Thread = _Thread
@@ -0,0 +1,25 @@
+"""
+Stand-in for numpy, providing just enough for the byte arrays that
+javabridge uses for transferring serialized Java objects. It records
+the copies made via tobytes.
+"""
+
+COPIES = []
+
+uint8 = "uint8"
+
+
+class ndarray(bytearray):
+    """
+    A one-dimensional array of bytes.
+    """
+
+    def tobytes(self):
+        COPIES.append(len(self))
+        return bytes(self)
+
+
+def frombuffer(buffer, dtype):
+    if dtype != uint8:
+        raise TypeError("unsupported dtype: %r" % (dtype,))
+    return ndarray(buffer)
@@ -0,0 +1,15 @@
+"""
+Stand-in for python-weka-wrapper's weka.core.classes for testing generated
+modules.
+"""
+
+
+class JavaObject(object):
+    """
+    Wraps a Java object.
+    """
+
+    def __init__(self, jobject):
+        if jobject is None:
+            raise Exception("No Java object supplied!")
+        self.jobject = jobject